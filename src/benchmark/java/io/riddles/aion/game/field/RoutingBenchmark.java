@@ -0,0 +1,181 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * io.riddles.aion.game.field.RoutingBenchmark - Created on 18-10-26
+ *
+ * Compares updating the routes in place after a bridge is built or
+ * removed with rebuilding the graph and all routes from the bridges, on a
+ * random map. Both are checked to end up with the same routes. Prints the
+ * average time per bridge change for both.
+ *
+ * Usage: RoutingBenchmark [--networks n] [--bridges n] [--changes n] [--seed n]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class RoutingBenchmark {
+
+    private int networkCount = 400;
+    private int bridgeCount = 1600;
+    private int changes = 200;
+    private long seed = 1;
+
+    private ArrayList<Network> networks;
+    private ArrayList<Bridge> bridges;
+    private HashMap<Long, List<Bridge>> pairs;
+    private Random random;
+    private int nextBridgeId;
+
+    public RoutingBenchmark(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+
+            switch (args[i]) {
+                case "--networks":
+                    this.networkCount = Integer.parseInt(value);
+                    break;
+                case "--bridges":
+                    this.bridgeCount = Integer.parseInt(value);
+                    break;
+                case "--changes":
+                    this.changes = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    this.seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown option %s", args[i]));
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        RoutingBenchmark benchmark = new RoutingBenchmark(args);
+
+        benchmark.run(false);  // warm up
+        benchmark.run(true);
+    }
+
+    private void run(boolean report) {
+        createMap();
+
+        NetworkGraph graph = new NetworkGraph(this.networkCount, this.bridges);
+        DynamicShortestPaths shortestPaths = new DynamicShortestPaths(this.networks, graph);
+        RoutingTable rebuilt = shortestPaths.getRoutingTable();
+        long updateNanos = 0;
+        long rebuildNanos = 0;
+
+        for (int change = 0; change < this.changes; change++) {
+            Bridge bridge = change % 2 == 0 ? buildBridge() : removeBridge();
+            int side1 = bridge.getSides().get(0).getIndex();
+            int side2 = bridge.getSides().get(1).getIndex();
+            List<Bridge> pairBridges = this.pairs.get(pairKey(side1, side2));
+
+            long start = System.nanoTime();
+            int oldFee = graph.getCheapestFee(side1, side2);
+            if (graph.updatePair(side1, side2, pairBridges)) {
+                shortestPaths.update(side1, side2, oldFee);
+            }
+            updateNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            NetworkGraph rebuiltGraph = new NetworkGraph(this.networkCount, this.bridges);
+            rebuilt = new DynamicShortestPaths(this.networks, rebuiltGraph).getRoutingTable();
+            rebuildNanos += System.nanoTime() - start;
+        }
+
+        checkSameRoutes(shortestPaths.getRoutingTable(), rebuilt);
+
+        if (!report) return;
+
+        System.out.printf("%d networks, %d bridges, %d changes, %d cores%n",
+                this.networkCount, this.bridgeCount, this.changes,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("  update in place: %.3f ms per change%n", updateNanos / 1e6 / this.changes);
+        System.out.printf("  full rebuild:    %.3f ms per change%n", rebuildNanos / 1e6 / this.changes);
+    }
+
+    private void createMap() {
+        this.random = new Random(this.seed);
+        this.networks = new ArrayList<>(this.networkCount);
+        this.bridges = new ArrayList<>();
+        this.pairs = new HashMap<>();
+        this.nextBridgeId = 0;
+
+        for (int i = 0; i < this.networkCount; i++) {
+            Point position = new Point(this.random.nextInt(1000), this.random.nextInt(1000));
+            this.networks.add(new Network(i, "N" + i, "N" + i, position));
+        }
+
+        while (this.bridges.size() < this.bridgeCount) {
+            buildBridge();
+        }
+    }
+
+    private Bridge buildBridge() {
+        int side1 = this.random.nextInt(this.networkCount);
+        int side2 = this.random.nextInt(this.networkCount - 1);
+        if (side2 >= side1) side2++;
+
+        Bridge bridge = new Bridge(
+                this.nextBridgeId++, this.random.nextInt(2), 1 + this.random.nextInt(5),
+                this.networks.get(side1), this.networks.get(side2), 8
+        );
+
+        this.bridges.add(bridge);
+        this.pairs.computeIfAbsent(pairKey(side1, side2), key -> new ArrayList<>()).add(bridge);
+
+        return bridge;
+    }
+
+    private Bridge removeBridge() {
+        Bridge bridge = this.bridges.remove(this.random.nextInt(this.bridges.size()));
+        int side1 = bridge.getSides().get(0).getIndex();
+        int side2 = bridge.getSides().get(1).getIndex();
+
+        this.pairs.get(pairKey(side1, side2)).remove(bridge);
+
+        return bridge;
+    }
+
+    private void checkSameRoutes(RoutingTable routingTable, RoutingTable expected) {
+        for (int from = 0; from < this.networkCount; from++) {
+            for (int to = 0; to < this.networkCount; to++) {
+                if (routingTable.getNextHop(from, to) != expected.getNextHop(from, to)
+                        || routingTable.getCost(from, to) != expected.getCost(from, to)) {
+                    throw new IllegalStateException(
+                            String.format("Routes from %d to %d differ", from, to)
+                    );
+                }
+            }
+        }
+    }
+
+    private long pairKey(int side1, int side2) {
+        return (long) Math.min(side1, side2) * this.networkCount + Math.max(side1, side2);
+    }
+}
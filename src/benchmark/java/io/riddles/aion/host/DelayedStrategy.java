@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.host;
+
+import java.util.Random;
+
+import io.riddles.aion.batch.Strategy;
+import io.riddles.aion.game.state.AionState;
+
+/**
+ * io.riddles.aion.host.DelayedStrategy - Created on 18-10-26
+ *
+ * Waits before every move, like a match waits on the response of a real
+ * bot. Used by the load test of the match host.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class DelayedStrategy implements Strategy {
+
+    private Strategy strategy;
+    private long delayMillis;
+
+    public DelayedStrategy(Strategy strategy, long delayMillis) {
+        this.strategy = strategy;
+        this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public String getMove(AionState state, int playerId, Random random) {
+        try {
+            Thread.sleep(this.delayMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return "pass";
+        }
+
+        return this.strategy.getMove(state, playerId, random);
+    }
+}
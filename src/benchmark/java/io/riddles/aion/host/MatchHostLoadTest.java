@@ -0,0 +1,194 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.host;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.riddles.aion.batch.BatchMatch;
+import io.riddles.aion.batch.BatchRunner;
+import io.riddles.aion.batch.BatchVariant;
+import io.riddles.aion.batch.MatchResult;
+import io.riddles.aion.batch.Strategy;
+import io.riddles.aion.engine.AionEngine;
+import io.riddles.aion.engine.AionSettings;
+import io.riddles.javainterface.configuration.Configuration;
+
+/**
+ * io.riddles.aion.host.MatchHostLoadTest - Created on 18-10-26
+ *
+ * Compares playing matches on a match host with starting a JVM for every
+ * match. The bots wait a fixed time before every move, so matches are
+ * mostly waiting like they are with real bots. Prints matches per second
+ * and per core for both.
+ *
+ * Usage: MatchHostLoadTest [--matches n] [--process-matches n] [--bots n]
+ *     [--delay millis] [--rounds n] [--running n] [--map path]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class MatchHostLoadTest {
+
+    private int matches = 1000;
+    private int processMatches = 20;
+    private int bots = 2;
+    private long delayMillis = 5;
+    private int rounds = 100;
+    private int runningMatches = 1000;
+    private String mapPath = "/data.json";
+    private BatchVariant variant;
+
+    public MatchHostLoadTest(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+
+            switch (args[i]) {
+                case "--matches":
+                    this.matches = Integer.parseInt(value);
+                    break;
+                case "--process-matches":
+                    this.processMatches = Integer.parseInt(value);
+                    break;
+                case "--bots":
+                    this.bots = Integer.parseInt(value);
+                    break;
+                case "--delay":
+                    this.delayMillis = Long.parseLong(value);
+                    break;
+                case "--rounds":
+                    this.rounds = Integer.parseInt(value);
+                    break;
+                case "--running":
+                    this.runningMatches = Integer.parseInt(value);
+                    break;
+                case "--map":
+                    this.mapPath = value;
+                    break;
+                case "--single":  // one match in a child process
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown option %s", args[i]));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        MatchHostLoadTest loadTest = new MatchHostLoadTest(args);
+
+        if (args.length >= 2 && args[0].equals("--single")) {
+            loadTest.createMatch(Long.parseLong(args[1])).play();
+            return;
+        }
+
+        loadTest.runHost();
+        loadTest.runProcesses();
+    }
+
+    private void runHost() throws Exception {
+        MatchHost host = new MatchHost(this.runningMatches);
+        List<CompletableFuture<MatchResult>> results = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int seed = 0; seed < this.matches; seed++) {
+            results.add(host.submit(createMatch(seed)::play));
+        }
+        host.shutdown();
+        host.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get();
+
+        report(String.format("host (%s threads)", host.isUsingVirtualThreads() ? "virtual" : "platform"),
+                this.matches, System.nanoTime() - start);
+        System.out.printf("  peak platform threads: %d%n",
+                ManagementFactory.getThreadMXBean().getPeakThreadCount());
+    }
+
+    /**
+     * Every match in its own JVM, as many at the same time as the host
+     * runs so only the process per match differs
+     */
+    private void runProcesses() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+        List<Process> processes = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int seed = 0; seed < this.processMatches; seed++) {
+            if (processes.size() >= this.runningMatches) {
+                waitFor(processes.remove(0));
+            }
+
+            processes.add(new ProcessBuilder(
+                    java, "-cp", classPath, MatchHostLoadTest.class.getName(),
+                    "--single", String.valueOf(seed),
+                    "--bots", String.valueOf(this.bots),
+                    "--delay", String.valueOf(this.delayMillis),
+                    "--rounds", String.valueOf(this.rounds),
+                    "--map", this.mapPath
+            ).inheritIO().start());
+        }
+
+        for (Process process : processes) {
+            waitFor(process);
+        }
+
+        report("process per match", this.processMatches, System.nanoTime() - start);
+    }
+
+    private void waitFor(Process process) throws InterruptedException {
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Match process failed");
+        }
+    }
+
+    private BatchMatch createMatch(long seed) throws Exception {
+        if (this.variant == null) {
+            Configuration configuration = AionEngine.createDefaultConfiguration();
+            configuration.put("maxRounds", this.rounds);
+            JSONObject fieldData = AionEngine.readFieldData(this.mapPath);
+
+            this.variant = new BatchVariant(
+                    0, this.mapPath, fieldData, new AionSettings(configuration), new JSONObject()
+            );
+        }
+
+        Strategy[] strategies = new Strategy[this.bots];
+        for (int playerId = 0; playerId < this.bots; playerId++) {
+            Strategy strategy = BatchRunner.createStrategy(playerId == 0 ? "greedy" : "random");
+            strategies[playerId] = new DelayedStrategy(strategy, this.delayMillis);
+        }
+
+        return new BatchMatch(this.variant, seed, strategies);
+    }
+
+    private void report(String name, int matches, long nanos) {
+        double seconds = nanos / 1e9;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%s: %d matches in %.2fs, %.2f matches/sec, %.2f matches/sec per core%n",
+                name, matches, seconds, matches / seconds, matches / seconds / cores);
+    }
+}
@@ -19,6 +19,9 @@
 
 package io.riddles.aion;
 
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import io.riddles.aion.engine.AionEngine;
 import io.riddles.aion.game.state.AionState;
 import io.riddles.javainterface.game.player.PlayerProvider;
@@ -33,10 +36,20 @@ import io.riddles.javainterface.io.IOHandler;
  */
 public class Aion {
 
+    private static final Logger LOGGER = Logger.getLogger(Aion.class.getName());
+
     public static void main(String[] args) throws Exception {
         AionEngine engine = new AionEngine(new PlayerProvider<>(), new IOHandler());
+        AionState firstState;
+
+        try {
+            firstState = engine.willRun();
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, ex.toString(), ex);
+            System.exit(1);
+            return;
+        }
 
-        AionState firstState = engine.willRun();
         AionState finalState = engine.run(firstState);
 
         engine.didRun(firstState, finalState);
@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.batch;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import io.riddles.aion.engine.AionContext;
+import io.riddles.aion.game.move.AionMove;
+import io.riddles.aion.game.move.AionMoveDeserializer;
+import io.riddles.aion.game.processor.AionRules;
+import io.riddles.aion.game.state.AionPlayerState;
+import io.riddles.aion.game.state.AionState;
+
+/**
+ * io.riddles.aion.batch.BatchMatch - Created on 18-10-26
+ *
+ * Plays a single match in-process with built-in strategies as players,
+ * using the same rules as the engine. Everything the match changes is its
+ * own, so matches can be played on different threads. The seed decides
+ * the transactions and the choices of the strategies, so playing it
+ * again gives the same result.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class BatchMatch {
+
+    private BatchVariant variant;
+    private long seed;
+    private Strategy[] strategies;  // by player id
+
+    public BatchMatch(BatchVariant variant, long seed, Strategy[] strategies) {
+        this.variant = variant;
+        this.seed = seed;
+        this.strategies = strategies;
+    }
+
+    public MatchResult play() {
+        Random random = new Random(this.seed);
+        AionContext context = new AionContext(this.variant.getSettings(), this.variant.getFieldData(), random);
+        AionRules rules = new AionRules(context);
+        AionMoveDeserializer moveDeserializer = new AionMoveDeserializer(context.getSettings());
+
+        ArrayList<Integer> playerIds = new ArrayList<>();
+        Random[] playerRandoms = new Random[this.strategies.length];
+        for (int playerId = 0; playerId < this.strategies.length; playerId++) {
+            playerIds.add(playerId);
+            playerRandoms[playerId] = new Random(random.nextLong());
+        }
+
+        AionState state = rules.createInitialState(playerIds);
+        int roundNumber = 0;
+
+        while (!rules.hasGameEnded(state)) {
+            roundNumber++;
+            state = rules.startRound(state, roundNumber);
+
+            for (AionPlayerState playerState : state.getPlayerStates()) {
+                int playerId = playerState.getPlayerId();
+                String input = this.strategies[playerId].getMove(state, playerId, playerRandoms[playerId]);
+                AionMove move = moveDeserializer.traverse(input);
+
+                state.getField().processMove(move, playerState);
+            }
+
+            rules.finishRound(state);
+        }
+
+        int[] totalCoins = new int[this.strategies.length];
+        for (int playerId = 0; playerId < totalCoins.length; playerId++) {
+            totalCoins[playerId] = state.getLedger().getTotalCoins(playerId);
+        }
+
+        return new MatchResult(this.variant, this.seed, roundNumber, rules.getWinnerId(state), totalCoins);
+    }
+}
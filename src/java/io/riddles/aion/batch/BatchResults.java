@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.batch;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * io.riddles.aion.batch.BatchResults - Created on 18-10-26
+ *
+ * Adds up the results of a batch per variant, with the throughput of the
+ * whole batch.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class BatchResults {
+
+    private List<BatchVariant> variants;
+    private String[] strategyNames;  // by player id
+    private int[] matches;  // by variant
+    private int[] draws;
+    private long[] rounds;
+    private int[][] wins;  // by variant and player id
+    private long[][] totalCoins;
+    private long totalRounds;
+    private long elapsedNanos;
+
+    public BatchResults(List<BatchVariant> variants, String[] strategyNames) {
+        int variantCount = variants.size();
+
+        this.variants = variants;
+        this.strategyNames = strategyNames;
+        this.matches = new int[variantCount];
+        this.draws = new int[variantCount];
+        this.rounds = new long[variantCount];
+        this.wins = new int[variantCount][strategyNames.length];
+        this.totalCoins = new long[variantCount][strategyNames.length];
+    }
+
+    public void addAll(List<MatchResult> results, long elapsedNanos) {
+        for (MatchResult result : results) {
+            add(result);
+        }
+
+        this.elapsedNanos += elapsedNanos;
+    }
+
+    public void add(MatchResult result) {
+        int variant = result.getVariant().getIndex();
+
+        this.matches[variant]++;
+        this.rounds[variant] += result.getRounds();
+        this.totalRounds += result.getRounds();
+
+        if (result.getWinnerId() == null) {
+            this.draws[variant]++;
+        } else {
+            this.wins[variant][result.getWinnerId()]++;
+        }
+
+        for (int playerId = 0; playerId < this.strategyNames.length; playerId++) {
+            this.totalCoins[variant][playerId] += result.getTotalCoins(playerId);
+        }
+    }
+
+    public JSONObject toJSON() {
+        JSONObject results = new JSONObject();
+        double seconds = this.elapsedNanos / 1e9;
+        int totalMatches = 0;
+
+        JSONArray variants = new JSONArray();
+        for (BatchVariant variant : this.variants) {
+            int index = variant.getIndex();
+            int matches = this.matches[index];
+            totalMatches += matches;
+
+            JSONArray players = new JSONArray();
+            for (int playerId = 0; playerId < this.strategyNames.length; playerId++) {
+                JSONObject player = new JSONObject();
+                player.put("id", playerId);
+                player.put("strategy", this.strategyNames[playerId]);
+                player.put("wins", this.wins[index][playerId]);
+                player.put("averageCoins", average(this.totalCoins[index][playerId], matches));
+                players.put(player);
+            }
+
+            JSONObject variantResults = new JSONObject();
+            variantResults.put("map", variant.getMapPath());
+            variantResults.put("settings", variant.getOverrides());
+            variantResults.put("matches", matches);
+            variantResults.put("draws", this.draws[index]);
+            variantResults.put("averageRounds", average(this.rounds[index], matches));
+            variantResults.put("players", players);
+            variants.put(variantResults);
+        }
+
+        results.put("matches", totalMatches);
+        results.put("rounds", this.totalRounds);
+        results.put("seconds", seconds);
+        results.put("matchesPerSecond", seconds > 0 ? totalMatches / seconds : 0);
+        results.put("roundsPerSecond", seconds > 0 ? this.totalRounds / seconds : 0);
+        results.put("variants", variants);
+
+        return results;
+    }
+
+    private double average(long total, int count) {
+        return count > 0 ? (double) total / count : 0;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.batch;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import io.riddles.aion.engine.AionEngine;
+import io.riddles.aion.engine.AionSettings;
+import io.riddles.javainterface.configuration.Configuration;
+
+/**
+ * io.riddles.aion.batch.BatchRunner - Created on 18-10-26
+ *
+ * Plays many matches in-process without bots or a match wrapper, for
+ * sweeping maps and settings with the built-in strategies. Every
+ * combination of the given maps and setting values is played once for
+ * every seed, spread over a fork-join pool. Writes the results per
+ * combination and the throughput as JSON.
+ *
+ * Usage: BatchRunner [--map path,...] [--seeds 1-1000,2000,@file]
+ *     [--bots greedy,random,...] [--set key=value,...]... [--threads n]
+ *     [--output file]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class BatchRunner {
+
+    private static final String USAGE = "Usage: BatchRunner [--map path,...] [--seeds 1-1000,2000,@file] "
+            + "[--bots greedy,random,...] [--set key=value,...]... [--threads n] [--output file]";
+
+    private List<String> mapPaths;
+    private List<Long> seeds;
+    private String[] strategyNames;
+    private LinkedHashMap<String, List<String>> sweeps;  // setting to its values
+    private int threads;
+    private String outputPath;
+
+    public BatchRunner(String[] args) throws IOException {
+        this.mapPaths = Arrays.asList("/data.json");
+        this.seeds = parseSeeds("1-100");
+        this.strategyNames = new String[] { "greedy", "random" };
+        this.sweeps = new LinkedHashMap<>();
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.outputPath = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException(String.format("Missing value for %s", option));
+            }
+
+            String value = args[++i];
+
+            switch (option) {
+                case "--map":
+                    this.mapPaths = Arrays.asList(value.split(","));
+                    break;
+                case "--seeds":
+                    this.seeds = parseSeeds(value);
+                    break;
+                case "--bots":
+                    this.strategyNames = value.split(",");
+                    break;
+                case "--set":
+                    parseSweep(value);
+                    break;
+                case "--threads":
+                    this.threads = Integer.parseInt(value);
+                    break;
+                case "--output":
+                    this.outputPath = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown option %s", option));
+            }
+        }
+
+        if (this.strategyNames.length < 2) {
+            throw new IllegalArgumentException("Need at least two bots");
+        }
+        if (this.threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        BatchRunner runner;
+        JSONObject results;
+
+        try {
+            runner = new BatchRunner(args);
+            results = runner.run().toJSON();
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        if (runner.outputPath == null) {
+            System.out.println(results.toString(2));
+        } else {
+            Files.write(Paths.get(runner.outputPath), results.toString(2).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public BatchResults run() throws Exception {
+        List<BatchVariant> variants = createVariants();
+        Strategy[] strategies = new Strategy[this.strategyNames.length];
+        for (int playerId = 0; playerId < strategies.length; playerId++) {
+            strategies[playerId] = createStrategy(this.strategyNames[playerId]);
+        }
+
+        ArrayList<BatchMatch> matches = new ArrayList<>();
+        for (BatchVariant variant : variants) {
+            for (long seed : this.seeds) {
+                matches.add(new BatchMatch(variant, seed, strategies));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        long start = System.nanoTime();
+        List<MatchResult> results;
+
+        try {
+            results = pool.submit(() -> matches.parallelStream()
+                    .map(BatchMatch::play)
+                    .collect(Collectors.toList())
+            ).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        BatchResults batchResults = new BatchResults(variants, this.strategyNames);
+        batchResults.addAll(results, System.nanoTime() - start);
+
+        return batchResults;
+    }
+
+    /**
+     * Strategies keep no state of their own, so one is shared by all matches
+     */
+    public static Strategy createStrategy(String name) {
+        switch (name) {
+            case "greedy":
+                return new GreedyStrategy();
+            case "random":
+                return new RandomStrategy();
+            case "pass":
+                return new PassStrategy();
+            default:
+                throw new IllegalArgumentException(String.format("Unknown bot %s", name));
+        }
+    }
+
+    /**
+     * Every combination of the maps and the values of the swept settings
+     */
+    private List<BatchVariant> createVariants() throws IOException {
+        Configuration defaults = AionEngine.createDefaultConfiguration();
+        for (String key : this.sweeps.keySet()) {
+            if (!defaults.containsKey(key)) {
+                throw new IllegalArgumentException(String.format("Unknown setting %s", key));
+            }
+        }
+
+        List<Map<String, String>> combinations = new ArrayList<>();
+        combinations.add(new LinkedHashMap<>());
+
+        for (Map.Entry<String, List<String>> sweep : this.sweeps.entrySet()) {
+            List<Map<String, String>> extended = new ArrayList<>();
+
+            for (Map<String, String> combination : combinations) {
+                for (String value : sweep.getValue()) {
+                    Map<String, String> copy = new LinkedHashMap<>(combination);
+                    copy.put(sweep.getKey(), value);
+                    extended.add(copy);
+                }
+            }
+
+            combinations = extended;
+        }
+
+        List<BatchVariant> variants = new ArrayList<>();
+        for (String mapPath : this.mapPaths) {
+            JSONObject fieldData = AionEngine.readFieldData(mapPath);
+
+            for (Map<String, String> combination : combinations) {
+                Configuration configuration = AionEngine.createDefaultConfiguration();
+                JSONObject overrides = new JSONObject();
+
+                for (Map.Entry<String, String> setting : combination.entrySet()) {
+                    Object value = parseSetting(setting.getValue());
+
+                    if (value instanceof Integer) {
+                        configuration.put(setting.getKey(), (int) value);
+                    } else {
+                        configuration.put(setting.getKey(), (String) value);
+                    }
+                    overrides.put(setting.getKey(), value);
+                }
+
+                AionSettings settings = new AionSettings(configuration);
+                variants.add(new BatchVariant(variants.size(), mapPath, fieldData, settings, overrides));
+            }
+        }
+
+        return variants;
+    }
+
+    private Object parseSetting(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return value;
+        }
+    }
+
+    private void parseSweep(String input) {
+        String[] split = input.split("=", 2);
+
+        if (split.length != 2 || split[0].isEmpty() || split[1].isEmpty()) {
+            throw new IllegalArgumentException(String.format("Can't parse setting '%s'", input));
+        }
+
+        this.sweeps.put(split[0], Arrays.asList(split[1].split(",")));
+    }
+
+    /**
+     * @param input Seeds and ranges of seeds split by commas, @path reads
+     *              a file with a seed on every line
+     */
+    private static List<Long> parseSeeds(String input) throws IOException {
+        List<Long> seeds = new ArrayList<>();
+
+        for (String part : input.split(",")) {
+            part = part.trim();
+
+            try {
+                if (part.startsWith("@")) {
+                    for (String line : Files.readAllLines(Paths.get(part.substring(1)))) {
+                        if (!line.trim().isEmpty()) {
+                            seeds.add(Long.parseLong(line.trim()));
+                        }
+                    }
+                } else if (part.indexOf('-', 1) > 0) {
+                    int dash = part.indexOf('-', 1);
+                    long first = Long.parseLong(part.substring(0, dash));
+                    long last = Long.parseLong(part.substring(dash + 1));
+
+                    for (long seed = first; seed <= last; seed++) {
+                        seeds.add(seed);
+                    }
+                } else {
+                    seeds.add(Long.parseLong(part));
+                }
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(String.format("Can't parse seeds '%s'", part));
+            }
+        }
+
+        return seeds;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.batch;
+
+import org.json.JSONObject;
+
+import io.riddles.aion.engine.AionSettings;
+
+/**
+ * io.riddles.aion.batch.BatchVariant - Created on 18-10-26
+ *
+ * One combination of map and settings in a sweep. Shared by all matches
+ * played with it, so it's never changed after it's created.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class BatchVariant {
+
+    private int index;
+    private String mapPath;
+    private JSONObject fieldData;
+    private AionSettings settings;
+    private JSONObject overrides;  // settings changed from the defaults
+
+    public BatchVariant(int index, String mapPath, JSONObject fieldData,
+                        AionSettings settings, JSONObject overrides) {
+        this.index = index;
+        this.mapPath = mapPath;
+        this.fieldData = fieldData;
+        this.settings = settings;
+        this.overrides = overrides;
+    }
+
+    public int getIndex() {
+        return this.index;
+    }
+
+    public String getMapPath() {
+        return this.mapPath;
+    }
+
+    public JSONObject getFieldData() {
+        return this.fieldData;
+    }
+
+    public AionSettings getSettings() {
+        return this.settings;
+    }
+
+    public JSONObject getOverrides() {
+        return this.overrides;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.batch;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import io.riddles.aion.game.field.AionField;
+import io.riddles.aion.game.field.Bridge;
+import io.riddles.aion.game.field.TransactionTable;
+import io.riddles.aion.game.state.AionState;
+
+/**
+ * io.riddles.aion.batch.GreedyStrategy - Created on 18-10-26
+ *
+ * Builds a direct bridge for the most transactions waiting on the same
+ * network for the same destination, if it has no bridge there yet. The
+ * fee matches the cheapest bridge already there, or is the highest fee
+ * if there's none.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class GreedyStrategy implements Strategy {
+
+    @Override
+    public String getMove(AionState state, int playerId, Random random) {
+        AionField field = state.getField();
+        int networkCount = field.getNetworks().size();
+
+        if (state.getLedger().getAvailableCoins(playerId) < state.getSettings().getStakeAmount()) {
+            return "pass";
+        }
+
+        HashSet<Long> ownPairs = new HashSet<>();
+        HashMap<Long, Integer> cheapestFees = new HashMap<>();
+        for (Bridge bridge : field.getBridges()) {
+            long pair = getPair(
+                    bridge.getSides().get(0).getIndex(), bridge.getSides().get(1).getIndex(), networkCount
+            );
+
+            if (bridge.getPlayerId() == playerId) {
+                ownPairs.add(pair);
+            }
+            cheapestFees.merge(pair, bridge.getFee(), Math::min);
+        }
+
+        TransactionTable transactions = field.getTransactionTable();
+        HashMap<Long, Integer> demand = new HashMap<>();
+        long bestPair = -1;
+        int bestDemand = 0;
+
+        for (int row : transactions.getWaitingRows()) {
+            int current = transactions.getCurrentNetwork(row);
+            int to = transactions.getTo(row);
+
+            if (current == to) continue;  // completed
+
+            long pair = getPair(current, to, networkCount);
+            if (ownPairs.contains(pair)) continue;
+
+            int count = demand.merge(pair, 1, Integer::sum);
+            if (count > bestDemand) {
+                bestPair = pair;
+                bestDemand = count;
+            }
+        }
+
+        if (bestPair < 0) return "pass";
+
+        int fee = cheapestFees.getOrDefault(bestPair, state.getSettings().getMaxFee());
+
+        return String.format("build %s-%s %d",
+                field.getNetwork((int) (bestPair / networkCount)).getCode(),
+                field.getNetwork((int) (bestPair % networkCount)).getCode(),
+                fee
+        );
+    }
+
+    private long getPair(int side1, int side2, int networkCount) {
+        return (long) Math.min(side1, side2) * networkCount + Math.max(side1, side2);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.batch;
+
+/**
+ * io.riddles.aion.batch.MatchResult - Created on 18-10-26
+ *
+ * The outcome of one match played by the batch runner.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class MatchResult {
+
+    private BatchVariant variant;
+    private long seed;
+    private int rounds;
+    private Integer winnerId;  // null on a draw
+    private int[] totalCoins;  // by player id
+
+    public MatchResult(BatchVariant variant, long seed, int rounds, Integer winnerId, int[] totalCoins) {
+        this.variant = variant;
+        this.seed = seed;
+        this.rounds = rounds;
+        this.winnerId = winnerId;
+        this.totalCoins = totalCoins;
+    }
+
+    public BatchVariant getVariant() {
+        return this.variant;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public int getRounds() {
+        return this.rounds;
+    }
+
+    public Integer getWinnerId() {
+        return this.winnerId;
+    }
+
+    public int getTotalCoins(int playerId) {
+        return this.totalCoins[playerId];
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.batch;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import io.riddles.aion.game.field.Bridge;
+import io.riddles.aion.game.field.Network;
+import io.riddles.aion.game.state.AionState;
+
+/**
+ * io.riddles.aion.batch.RandomStrategy - Created on 18-10-26
+ *
+ * Builds bridges between random networks with a random fee, and now and
+ * then removes one of its bridges.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class RandomStrategy implements Strategy {
+
+    @Override
+    public String getMove(AionState state, int playerId, Random random) {
+        int action = random.nextInt(10);
+
+        if (action < 5) {
+            ArrayList<Network> networks = state.getField().getNetworks();
+            Network side1 = networks.get(random.nextInt(networks.size()));
+            Network side2 = networks.get(random.nextInt(networks.size()));
+            int fee = 1 + random.nextInt(state.getSettings().getMaxFee());
+
+            if (side1 == side2) return "pass";
+
+            return String.format("build %s-%s %d", side1.getCode(), side2.getCode(), fee);
+        }
+
+        if (action < 7) {
+            ArrayList<Bridge> ownBridges = new ArrayList<>();
+            for (Bridge bridge : state.getField().getBridges()) {
+                if (bridge.getPlayerId() == playerId) {
+                    ownBridges.add(bridge);
+                }
+            }
+
+            if (ownBridges.isEmpty()) return "pass";
+
+            Bridge bridge = ownBridges.get(random.nextInt(ownBridges.size()));
+
+            return String.format("remove %s", bridge.toSimpleString());
+        }
+
+        return "pass";
+    }
+}
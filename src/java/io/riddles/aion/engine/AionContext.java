@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.engine;
+
+import org.json.JSONObject;
+
+import java.util.Random;
+
+/**
+ * io.riddles.aion.engine.AionContext - Created on 18-10-26
+ *
+ * Everything a single match reads from outside its state: the settings,
+ * the parsed map and the random that spawns transactions. Passed from
+ * the engine to the processor, fields and serializers instead of static
+ * fields, so matches in the same JVM don't share anything they change.
+ * The map is only read, so contexts may share it.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class AionContext {
+
+    private AionSettings settings;
+    private JSONObject fieldData;
+    private Random random;
+
+    public AionContext(AionSettings settings, JSONObject fieldData, Random random) {
+        this.settings = settings;
+        this.fieldData = fieldData;
+        this.random = random;
+    }
+
+    public AionSettings getSettings() {
+        return this.settings;
+    }
+
+    public JSONObject getFieldData() {
+        return this.fieldData;
+    }
+
+    /**
+     * @return Random of the match, only to be used by the thread running it
+     */
+    public Random getRandom() {
+        return this.random;
+    }
+}
@@ -24,18 +24,25 @@ import org.json.JSONObject;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.UUID;
-import java.util.logging.Level;
 
 import io.riddles.aion.Aion;
 import io.riddles.aion.game.AionSerializer;
+import io.riddles.aion.game.ResultWriter;
 import io.riddles.aion.game.field.AionField;
 import io.riddles.aion.game.player.AionPlayer;
 import io.riddles.aion.game.processor.AionProcessor;
-import io.riddles.aion.game.state.AionPlayerState;
+import io.riddles.aion.game.processor.AionRules;
 import io.riddles.aion.game.state.AionState;
 import io.riddles.aion.game.state.AionStateSerializer;
 import io.riddles.javainterface.configuration.Configuration;
@@ -56,7 +63,7 @@ import io.riddles.javainterface.serialize.AbstractSerializer;
  */
 public class AionEngine extends AbstractEngine<AionProcessor, AionPlayer, AionState> {
 
-    public static JSONObject fieldData;
+    private AionContext context;
 
     public AionEngine(PlayerProvider<AionPlayer> playerProvider, IOInterface ioHandler) {
         super(playerProvider, ioHandler);
@@ -64,6 +71,10 @@ public class AionEngine extends AbstractEngine<AionProcessor, AionPlayer, AionSt
 
     @Override
     protected Configuration getDefaultConfiguration() {
+        return createDefaultConfiguration();
+    }
+
+    public static Configuration createDefaultConfiguration() {
         Configuration configuration = new Configuration();
 
         configuration.put("dataFile", "/data.json");
@@ -75,6 +86,12 @@ public class AionEngine extends AbstractEngine<AionProcessor, AionPlayer, AionSt
         configuration.put("stakeAmount", 100);
         configuration.put("winAmount", 1000);
         configuration.put("maxFee", 3);
+        configuration.put("historyKeyframeInterval", 0);
+        configuration.put("parallelMoves", 0);
+        configuration.put("moveDeadline", 0);
+        configuration.put("deltaUpdates", 0);
+        configuration.put("fullUpdateInterval", 50);
+        configuration.put("resultFile", "");
         configuration.put("seed", UUID.randomUUID().toString());
 
         return configuration;
@@ -100,49 +117,76 @@ public class AionEngine extends AbstractEngine<AionProcessor, AionPlayer, AionSt
         return new AionPlayer(id);
     }
 
+    /**
+     * With a result file set, the processor writes the states to it while
+     * the game is played
+     */
     @Override
     protected AionProcessor createProcessor() {
-        return new AionProcessor(this.playerProvider);
+        AionProcessor processor = new AionProcessor(this.playerProvider, getContext());
+        String resultFile = getContext().getSettings().getResultFile();
+
+        if (resultFile != null) {
+            try {
+                Writer output = Files.newBufferedWriter(Paths.get(resultFile), StandardCharsets.UTF_8);
+                processor.setResultWriter(new ResultWriter(output));
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to open the result file", ex);
+            }
+        }
+
+        return processor;
     }
 
     @Override
     protected void loadData() {
-        try {
-            InputStream fileInputStream;
-            String filePath = configuration.getString("dataFile");
+        getContext();  // fail on a bad configuration or map before anything runs
+    }
 
-            try {
-                fileInputStream = new FileInputStream(filePath);
-            } catch (FileNotFoundException ex) {
-                fileInputStream = Aion.class.getResourceAsStream(filePath);
-            }
+    /**
+     * Reads the map from a file, or from the resources if there's no such file
+     */
+    public static JSONObject readFieldData(String filePath) throws IOException {
+        InputStream fileInputStream;
 
-            BufferedReader br = new BufferedReader(new InputStreamReader(fileInputStream));
+        try {
+            fileInputStream = new FileInputStream(filePath);
+        } catch (FileNotFoundException ex) {
+            fileInputStream = Aion.class.getResourceAsStream(filePath);
+        }
 
+        if (fileInputStream == null) {
+            throw new FileNotFoundException(filePath);
+        }
+
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(fileInputStream))) {
             String line;
             StringBuilder file = new StringBuilder();
             while ((line = br.readLine()) != null) {
                 file.append(line);
             }
 
-            fieldData = new JSONObject(file.toString().trim());
-        } catch (Exception ex) {
-            LOGGER.log(Level.SEVERE, ex.toString(), ex);
-            System.exit(1);
+            return new JSONObject(file.toString().trim());
         }
     }
 
     @Override
     protected void sendSettingsToPlayer(AionPlayer player) {
+        AionSettings settings = getContext().getSettings();
+
         player.sendSetting("your_botid", player.getId());
-        player.sendSetting("transaction_speed", configuration.getInt("transactionSpeed"));
-        player.sendSetting("transaction_rate", configuration.getInt("transactionRate"));
-        player.sendSetting("initial_coins", configuration.getInt("initialCoins"));
-        player.sendSetting("win_amount", configuration.getInt("winAmount"));
-        player.sendSetting("stake_amount", configuration.getInt("stakeAmount"));
-        player.sendSetting("max_fee", configuration.getInt("maxFee"));
-        player.sendSetting("max_rounds", configuration.getInt("maxRounds"));
-        player.sendSetting("field", new AionField(fieldData).toString());
+        player.sendSetting("transaction_speed", settings.getTransactionSpeed());
+        player.sendSetting("transaction_rate", settings.getTransactionRate());
+        player.sendSetting("initial_coins", settings.getInitialCoins());
+        player.sendSetting("win_amount", settings.getWinAmount());
+        player.sendSetting("stake_amount", settings.getStakeAmount());
+        player.sendSetting("max_fee", settings.getMaxFee());
+        player.sendSetting("max_rounds", settings.getMaxRounds());
+        player.sendSetting("update_mode", settings.isDeltaUpdates() ? "delta" : "full");
+        if (settings.isDeltaUpdates()) {
+            player.sendSetting("full_update_interval", settings.getFullUpdateInterval());
+        }
+        player.sendSetting("field", new AionField(getContext()).toString());
     }
 
     @Override
@@ -152,15 +196,42 @@ public class AionEngine extends AbstractEngine<AionProcessor, AionPlayer, AionSt
 
     @Override
     protected AionState getInitialState() {
-        AionField field = new AionField(fieldData);
-        field.spawnTransactions(AionEngine.configuration.getInt("initialTransactions"));
-
-        int initialCoins = configuration.getInt("initialCoins");
-        ArrayList<AionPlayerState> playerStates = new ArrayList<>();
+        ArrayList<Integer> playerIds = new ArrayList<>();
         for (AionPlayer player : this.playerProvider.getPlayers()) {
-            playerStates.add(new AionPlayerState(player.getId(), initialCoins));
+            playerIds.add(player.getId());
+        }
+
+        AionState initialState = new AionRules(getContext()).createInitialState(playerIds);
+
+        if (this.processor.getResultWriter() != null) {
+            this.processor.getResultWriter().writeState(initialState);
+        }
+
+        return initialState;
+    }
+
+    /**
+     * Creates the context of the match the first time it's needed, which
+     * is after the configuration from the wrapper is merged into the
+     * defaults. The random is seeded from the configured seed, so the
+     * match doesn't depend on the static random of the engine.
+     * Throws instead of exiting on a bad configuration or map, so a match
+     * hosted with other matches only fails itself.
+     */
+    public AionContext getContext() {
+        if (this.context == null) {
+            try {
+                AionSettings settings = new AionSettings(configuration);
+                JSONObject fieldData = readFieldData(configuration.getString("dataFile"));
+                SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+                random.setSeed(configuration.getString("seed").getBytes(StandardCharsets.UTF_8));
+
+                this.context = new AionContext(settings, fieldData, random);
+            } catch (Exception ex) {
+                throw new RuntimeException("Failed to load the match: " + ex, ex);
+            }
         }
 
-        return new AionState(playerStates, field);
+        return this.context;
     }
 }
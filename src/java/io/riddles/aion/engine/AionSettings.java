@@ -0,0 +1,163 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.engine;
+
+import io.riddles.javainterface.configuration.Configuration;
+
+/**
+ * io.riddles.aion.engine.AionSettings - Created on 18-10-26
+ *
+ * The game settings read once from the configuration. Values are checked
+ * when created, so a bad configuration fails before the game starts and
+ * the game itself only reads final fields. Immutable.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class AionSettings {
+
+    private final int transactionSpeed;
+    private final int initialTransactions;
+    private final int transactionRate;
+    private final int initialCoins;
+    private final int maxRounds;
+    private final int stakeAmount;
+    private final int winAmount;
+    private final int maxFee;
+    private final int historyKeyframeInterval;
+    private final boolean parallelMoves;
+    private final int moveDeadline;
+    private final boolean deltaUpdates;
+    private final int fullUpdateInterval;
+    private final String resultFile;
+
+    public AionSettings(Configuration configuration) {
+        this.transactionSpeed = readInt(configuration, "transactionSpeed", 1);
+        this.initialTransactions = readInt(configuration, "initialTransactions", 0);
+        this.transactionRate = readInt(configuration, "transactionRate", 0);
+        this.initialCoins = readInt(configuration, "initialCoins", 0);
+        this.maxRounds = readInt(configuration, "maxRounds", 1);
+        this.stakeAmount = readInt(configuration, "stakeAmount", 0);
+        this.winAmount = readInt(configuration, "winAmount", 1);
+        this.maxFee = readInt(configuration, "maxFee", 1);
+        this.historyKeyframeInterval = readInt(configuration, "historyKeyframeInterval", 0);
+        this.parallelMoves = readInt(configuration, "parallelMoves", 0) != 0;
+        this.moveDeadline = readInt(configuration, "moveDeadline", 0);
+        this.deltaUpdates = readInt(configuration, "deltaUpdates", 0) != 0;
+        this.fullUpdateInterval = readInt(configuration, "fullUpdateInterval", 1);
+        this.resultFile = configuration.containsKey("resultFile") ? configuration.getString("resultFile") : "";
+    }
+
+    public int getTransactionSpeed() {
+        return this.transactionSpeed;
+    }
+
+    public int getInitialTransactions() {
+        return this.initialTransactions;
+    }
+
+    public int getTransactionRate() {
+        return this.transactionRate;
+    }
+
+    public int getInitialCoins() {
+        return this.initialCoins;
+    }
+
+    public int getMaxRounds() {
+        return this.maxRounds;
+    }
+
+    public int getStakeAmount() {
+        return this.stakeAmount;
+    }
+
+    public int getWinAmount() {
+        return this.winAmount;
+    }
+
+    public int getMaxFee() {
+        return this.maxFee;
+    }
+
+    /**
+     * @return Rounds between states that keep their full field, 0 keeps
+     * the field of every state
+     */
+    public int getHistoryKeyframeInterval() {
+        return this.historyKeyframeInterval;
+    }
+
+    /**
+     * @return Whether all players are asked for their moves at the same
+     * time. Needs IO that can handle players concurrently.
+     */
+    public boolean isParallelMoves() {
+        return this.parallelMoves;
+    }
+
+    /**
+     * @return Milliseconds players get to make their moves when asked in
+     * parallel, 0 waits as long as the IO does
+     */
+    public int getMoveDeadline() {
+        return this.moveDeadline;
+    }
+
+    /**
+     * @return Whether players get only what changed on the field each
+     * round, instead of all bridges and transactions
+     */
+    public boolean isDeltaUpdates() {
+        return this.deltaUpdates;
+    }
+
+    /**
+     * @return Rounds between updates that send the whole field again when
+     * players get delta updates
+     */
+    public int getFullUpdateInterval() {
+        return this.fullUpdateInterval;
+    }
+
+    /**
+     * @return Path of the file the states are written to while the game is
+     * played, or null if the whole game goes to the IO handler at the end
+     */
+    public String getResultFile() {
+        return this.resultFile.isEmpty() ? null : this.resultFile;
+    }
+
+    private static int readInt(Configuration configuration, String key, int minimum) {
+        int value;
+        try {
+            value = configuration.getInt(key);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException(
+                    String.format("Setting %s is missing or not a number", key), ex);
+        }
+
+        if (value < minimum) {
+            throw new IllegalArgumentException(
+                    String.format("Setting %s can't be lower than %d", key, minimum));
+        }
+
+        return value;
+    }
+}
@@ -19,39 +19,161 @@
 
 package io.riddles.aion.game;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 
-import io.riddles.aion.engine.AionEngine;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+import io.riddles.aion.engine.AionSettings;
 import io.riddles.aion.game.processor.AionProcessor;
 import io.riddles.aion.game.state.AionState;
 import io.riddles.aion.game.state.AionStateSerializer;
+import io.riddles.aion.replay.ReplayWriter;
 import io.riddles.javainterface.game.AbstractGameSerializer;
 
 /**
  * io.riddles.aion.game.AionSerializer - Created on 7-3-18
  *
- * [description]
+ * Writes the played game. The library gets the states from the state
+ * serializer as JSON objects, but here they are only recorded and then
+ * streamed to the output by a ResultWriter one at a time, so the game is
+ * never held as one big JSON object. With a result file set, the states
+ * were written while the game was played and only the rest is left.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
 public class AionSerializer extends AbstractGameSerializer<AionProcessor, AionState, AionStateSerializer> {
 
+    /**
+     * The library sends the game to the IO handler as one string. With a
+     * result file set, the states are already in the file, so the file is
+     * finished here and only the rest of the game is returned. Otherwise
+     * the output is first written to a StringWriter and then copied into
+     * the returned string, so memory peaks at about twice its size.
+     */
+    @Override
+    public String traverseToString(
+            AionProcessor processor,
+            AionState initialState,
+            AionStateSerializer stateSerializer
+    ) {
+        ResultWriter resultWriter = processor.getResultWriter();
+
+        if (resultWriter != null) {
+            JSONObject game = visitGame(processor, initialState, new StateRecorder());
+            game.remove("states");
+            resultWriter.finish(game);
+
+            try {
+                resultWriter.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to write the result file", ex);
+            }
+
+            return game.toString();
+        }
+
+        StringWriter output = new StringWriter();
+        write(processor, initialState, output);
+
+        return output.toString();
+    }
+
+    /**
+     * Writes the played game to the output, one state at a time
+     */
+    public void write(AionProcessor processor, AionState initialState, Writer output) {
+        StateRecorder recorder = new StateRecorder();
+        JSONObject game = visitGame(processor, initialState, recorder);
+
+        ResultWriter writer = new ResultWriter(output);
+        for (AionState state : recorder.getStates()) {
+            writer.writeState(state);
+        }
+        writer.finish(game);
+    }
+
+    /**
+     * Writes the played game to the output as a binary replay
+     */
+    public void writeReplay(AionProcessor processor, AionState initialState, OutputStream output)
+            throws IOException {
+        StateRecorder recorder = new StateRecorder();
+        JSONObject game = visitGame(processor, initialState, recorder);
+
+        ReplayWriter writer = new ReplayWriter(output, game);
+        for (AionState state : recorder.getStates()) {
+            writer.writeState(state);
+        }
+        writer.finish();
+    }
+
+    /**
+     * Builds the game without the library, which reads the static engine
+     * configuration. Everything comes from the context of the match, so
+     * matches with other settings can be played at the same time.
+     */
     @Override
     protected JSONObject visitGame(
             AionProcessor processor,
             AionState initialState,
             AionStateSerializer stateSerializer
     ) {
-        JSONObject game = super.visitGame(processor, initialState, stateSerializer);
+        JSONObject game = new JSONObject();
+        JSONArray states = new JSONArray();
+
+        AionState finalState = initialState;
+        for (AionState state = initialState; state != null; state = (AionState) state.getNextState()) {
+            states.put(stateSerializer.visitObject(state));
+            finalState = state;
+        }
+
+        // States written to a result file are unlinked, the processor has the last one
+        if (processor.getLastState() != null) {
+            finalState = processor.getLastState();
+        }
 
-        game.put("field", AionEngine.fieldData.getJSONObject("field"));
-        game.put("networks", AionEngine.fieldData.getJSONArray("networks"));
+        Integer winnerId = processor.getWinnerId(finalState);
+        JSONObject players = new JSONObject();
+        players.put("count", initialState.getPlayerStates().size());
+        players.put("winnerId", winnerId != null ? winnerId : JSONObject.NULL);
 
-        int transactionSpeed = AionEngine.configuration.getInt("transactionSpeed");
-        int initialCoins = AionEngine.configuration.getInt("initialCoins");
-        game.getJSONObject("settings").put("transactionSpeed", transactionSpeed);
-        game.getJSONObject("settings").put("initialCoins", initialCoins);
+        AionSettings settings = initialState.getSettings();
+        JSONObject gameSettings = new JSONObject();
+        gameSettings.put("players", players);
+        gameSettings.put("transactionSpeed", settings.getTransactionSpeed());
+        gameSettings.put("initialCoins", settings.getInitialCoins());
+
+        JSONObject fieldData = initialState.getContext().getFieldData();
+        game.put("settings", gameSettings);
+        game.put("field", fieldData.getJSONObject("field"));
+        game.put("networks", fieldData.getJSONArray("networks"));
+        game.put("states", states);
 
         return game;
     }
+
+    /**
+     * Remembers the states in the order the game serializer visits them,
+     * and gives it empty objects in their place
+     */
+    private static class StateRecorder extends AionStateSerializer {
+
+        private ArrayList<AionState> states = new ArrayList<>();
+
+        @Override
+        public JSONObject visitObject(AionState state) {
+            this.states.add(state);
+            return new JSONObject();
+        }
+
+        ArrayList<AionState> getStates() {
+            return this.states;
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game;
+
+import org.json.JSONObject;
+import org.json.JSONWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import io.riddles.aion.game.state.AionState;
+import io.riddles.aion.game.state.AionStateSerializer;
+
+/**
+ * io.riddles.aion.game.ResultWriter - Created on 18-10-26
+ *
+ * Writes a played game to the output one state at a time, so neither the
+ * states nor the game are ever built as one JSON object in memory. The
+ * states are written first and the rest of the game, which is only known
+ * when it has ended, comes after. The file has the same keys as the one
+ * built by the game serializer.
+ *
+ * With a result file set, the processor writes every state to the file
+ * as soon as its round ends. Otherwise the engine hands the whole game to
+ * its IO handler as a string, and AionSerializer.traverseToString then
+ * holds all states and about twice the output.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class ResultWriter {
+
+    private Writer output;
+    private JSONWriter writer;
+    private AionStateSerializer stateSerializer;
+    private boolean finished;
+
+    public ResultWriter(Writer output) {
+        this.output = output;
+        this.writer = new JSONWriter(output);
+        this.stateSerializer = new AionStateSerializer();
+        this.finished = false;
+
+        this.writer.object().key("states").array();
+    }
+
+    public void writeState(AionState state) {
+        if (this.finished) {
+            throw new IllegalStateException("Result is already finished");
+        }
+
+        this.stateSerializer.writeState(state, this.writer);
+    }
+
+    /**
+     * Writes a state that's already a JSON object, like one read from a
+     * replay
+     */
+    public void writeState(JSONObject state) {
+        if (this.finished) {
+            throw new IllegalStateException("Result is already finished");
+        }
+
+        this.writer.value(state);
+    }
+
+    /**
+     * Closes the states and writes all other keys of the game.
+     * @param game The game without its states, states in it are ignored
+     */
+    public void finish(JSONObject game) {
+        if (this.finished) return;
+
+        this.writer.endArray();
+
+        String[] keys = JSONObject.getNames(game);
+        if (keys != null) {
+            for (String key : keys) {
+                if (key.equals("states")) continue;
+
+                this.writer.key(key).value(game.get(key));
+            }
+        }
+
+        this.writer.endObject();
+        this.finished = true;
+    }
+
+    /**
+     * Closes the output, finish has to be called first to get a whole game
+     */
+    public void close() throws IOException {
+        this.output.close();
+    }
+}
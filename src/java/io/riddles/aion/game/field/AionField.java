@@ -24,9 +24,14 @@ import org.json.JSONObject;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 
-import io.riddles.aion.engine.AionEngine;
+import io.riddles.aion.engine.AionContext;
+import io.riddles.aion.engine.AionSettings;
 import io.riddles.aion.game.move.AionMove;
 import io.riddles.aion.game.move.MoveType;
 import io.riddles.aion.game.state.AionPlayerState;
@@ -48,19 +53,43 @@ public class AionField {
     private int bridgeCount;
     private ArrayList<Network> networks;
     private ArrayList<Bridge> bridges;
-    private ArrayList<Transaction> transactions;
-
-    public AionField(JSONObject fieldData) {
+    private HashMap<Integer, Bridge> bridgesById;
+    private BridgeIndex bridgeIndex;
+    private TransactionTable transactions;
+    private NetworkSymbolTable symbols;
+    private NetworkGraph graph;
+    private DynamicShortestPaths shortestPaths;
+    private boolean bridgesShared;  // copy bridge state before changing it
+    private FieldDelta delta;  // changes since copied from the previous field
+    private TransactionSpawner spawner;
+    private String[] routeStrings;  // "from>to" by from * networks + to, shared cache
+    private String bridgesString;  // null when bridges changed since last made
+    private AionContext context;
+    private AionSettings settings;
+
+    public AionField(AionContext context) {
+        JSONObject fieldData = context.getFieldData();
         JSONObject field = fieldData.getJSONObject("field");
         JSONArray networks = fieldData.getJSONArray("networks");
 
+        this.context = context;
+        this.settings = context.getSettings();
         this.width = field.getInt("width");
         this.height = field.getInt("height");
         this.transactionCount = 0;
         this.bridgeCount = 0;
         this.networks = parseNetworks(networks);
+        this.spawner = parseSpawner(networks);
         this.bridges = new ArrayList<>();
-        this.transactions = new ArrayList<>();
+        this.bridgesById = new HashMap<>();
+        this.bridgeIndex = new BridgeIndex(this.networks.size());
+        this.transactions = new TransactionTable(this.networks);
+        this.symbols = new NetworkSymbolTable(this.networks);
+        this.routeStrings = new String[this.networks.size() * this.networks.size()];
+        this.graph = new NetworkGraph(this.networks.size());
+        this.shortestPaths = new DynamicShortestPaths(this.networks, this.graph);
+        this.bridgesShared = false;
+        this.delta = null;
     }
 
     public AionField(AionField field) {
@@ -68,72 +97,134 @@ public class AionField {
         this.height = field.height;
         this.transactionCount = field.transactionCount;
         this.bridgeCount = field.bridgeCount;
+        this.context = field.context;
+        this.settings = field.settings;  // immutable
+        this.networks = field.networks;  // immutable
+        this.spawner = field.spawner;  // immutable
+        this.symbols = field.symbols;  // immutable
+        this.routeStrings = field.routeStrings;
+        this.bridgesString = field.bridgesString;
+
+        // Bridges are immutable, the collections holding them are shared
+        // until one of the fields builds or removes a bridge
+        this.bridges = field.bridges;
+        this.bridgesById = field.bridgesById;
+        this.bridgeIndex = field.bridgeIndex;
+        this.graph = field.graph;
+        this.shortestPaths = field.shortestPaths;
+        this.bridgesShared = true;
+        field.bridgesShared = true;
+
+        // Transaction chunks are copied when first written, the rows
+        // written up to here are what changed in the field's round
+        if (field.delta != null) {
+            field.delta.seal(field.transactions, field.transactionCount, field.bridgeCount);
+        }
+        this.transactions = new TransactionTable(field.transactions);
+        this.delta = new FieldDelta(this.networks);
+    }
+
+    /**
+     * Turns a copy of the previous round's field into the field the delta
+     * was recorded on.
+     */
+    public void applyDelta(FieldDelta delta) {
+        for (int i = 0; i < delta.getBridgeChangeCount(); i++) {
+            Bridge bridge = delta.getBridgeChange(i);
+
+            if (delta.isBridgeRemoval(i)) {
+                removeBridge(bridge);
+            } else {
+                putBridge(bridge);
+            }
+        }
 
-        // ordering of cloning below is important
-        this.networks = field.networks.stream()
-                .map(Network::new)
-                .collect(Collectors.toCollection(ArrayList::new));
-        this.bridges = field.bridges.stream()
-                .map(bridge -> new Bridge(bridge, this))
-                .collect(Collectors.toCollection(ArrayList::new));
-        this.transactions = field.transactions.stream()
-                .map(transaction -> new Transaction(transaction, this))
-                .collect(Collectors.toCollection(ArrayList::new));
+        // Rows move on removal, so adds and removals are repeated in order.
+        // The added rows are dirty, they are filled in below.
+        for (int i = 0; i < delta.getTransactionOperationCount(); i++) {
+            int operation = delta.getTransactionOperation(i);
+
+            if (operation >= 0) {
+                this.transactions.remove(operation);
+                continue;
+            }
+
+            for (int j = 0; j < -operation; j++) {
+                this.transactions.add(this.transactionCount++, 0, 0);
+            }
+        }
+
+        for (int i = 0; i < delta.getTransactionChangeCount(); i++) {
+            this.transactions.setRow(delta.getTransactionPosition(i), delta.getTransactions(), i);
+        }
+
+        this.transactionCount = delta.getTransactionCount();
+        this.bridgeCount = delta.getBridgeCount();
+        this.transactions.setTick(delta.getTick());
     }
 
     public void spawnTransactions(int amount) {
-        for (int i = 0; i < amount; i++) {
-            ArrayList<Network> networks = new ArrayList<>(this.networks);
+        spawnTransactions(amount, this.context.getRandom());
+    }
 
-            Network from = networks.remove(AionEngine.random.nextInt(networks.size()));
-            Network to = networks.remove(AionEngine.random.nextInt(networks.size()));
+    public void spawnTransactions(int amount, Random random) {
+        if (amount <= 0) return;
 
-            addTransaction(from, to);
+        int[] from = new int[amount];
+        int[] to = new int[amount];
+        this.spawner.spawn(random, amount, from, to);
+
+        this.transactions.addAll(this.transactionCount, from, to, amount);
+        this.transactionCount += amount;
+
+        if (this.delta != null) {
+            this.delta.transactionsAdded(amount);
         }
     }
 
     public void removeCompleteTransactions() {
-        this.transactions = this.transactions.stream()
-                .filter(t -> !t.isCompleted())
-                .collect(Collectors.toCollection(ArrayList::new));
+        if (!this.transactions.hasCompleted()) return;
+
+        // Going down, so the rows moved into removed ones are already checked
+        for (int row = this.transactions.size() - 1; row >= 0; row--) {
+            if (this.transactions.isCompleted(row)) {
+                removeTransaction(row);
+            }
+        }
     }
 
     public void moveTransactions(AionState state) {
-        ShortestPathHandler shortestPathHandler = new ShortestPathHandler(this.networks);
+        TransactionTable transactions = this.transactions;
+        RoutingTable routingTable = this.shortestPaths.getRoutingTable();
+        int tick = transactions.advance();
 
-        for (Transaction transaction : this.transactions) {
+        // Only waiting transactions and those arriving now can change
+        int[] arrivingRows = transactions.getArrivingRows(tick);
+        int[] waitingRows = transactions.getWaitingRows();
 
-            // Start moving transaction along correct bridge
-            if (transaction.getCurrentNetwork() != null) {
-                ArrayList<Network> shortestPath = shortestPathHandler.getShortestPath(
-                        transaction.getCurrentNetwork(), transaction.getTo()
-                );
+        for (int row : waitingRows) {
+            int currentNetwork = transactions.getCurrentNetwork(row);
 
-                if (shortestPath == null) continue; // No path, so do nothing
+            // Start moving transaction along correct bridge
+            int nextHop = routingTable.getNextHop(
+                    currentNetwork, transactions.getTo(row)
+            );
 
-                Network nextNetwork = shortestPath.get(0);
-                Network currentNetwork = transaction.getCurrentNetwork();
-                ArrayList<Bridge> bridges = currentNetwork.getCheapestBridgesTo(nextNetwork);
+            if (nextHop == RoutingTable.NO_ROUTE) continue; // No path, so do nothing
 
-                transaction.setCurrentBridges(bridges);
-                transaction.setCurrentNetwork(null);
-                transaction.setPreviousNetwork(currentNetwork);
-            }
+            ArrayList<Bridge> bridges = this.bridgeIndex.getCheapestBridges(
+                    currentNetwork, nextHop
+            );
 
-            ArrayList<Bridge> bridges = transaction.getCurrentBridges();
+            transactions.depart(row, bridges, currentNetwork);
 
-            // Move transaction along bridge
-            if (!transaction.moveAlongBridge()) continue;
-
-            // Transaction reached other side of the bridge
-            for (Bridge bridge : bridges) {
-                AionPlayerState playerState = state.getPlayerStateById(bridge.getPlayerId());
-                playerState.receiveFee(bridge.getFee() / bridges.size());
+            if (transactions.getArrival(row) == tick) { // Crossed in a single round
+                arriveTransaction(row, state);
             }
+        }
 
-            if (transaction.getCurrentNetwork() == transaction.getTo()) { // Goal reached
-                transaction.setCompleted();
-            }
+        for (int row : arrivingRows) {
+            arriveTransaction(row, state);
         }
     }
 
@@ -153,8 +244,10 @@ public class AionField {
     }
 
     private void processBuildMove(AionMove move, Network side1, Network side2, AionPlayerState playerState) {
-        Bridge bridge = findBridge(side1.getCode(), side2.getCode(), playerState.getPlayerId());
-        int stakeAmount = AionEngine.configuration.getInt("stakeAmount");
+        Bridge bridge = this.bridgeIndex.find(
+                side1.getIndex(), side2.getIndex(), playerState.getPlayerId()
+        );
+        int stakeAmount = this.settings.getStakeAmount();
         String exception = null;
 
         if (bridge != null) {
@@ -170,10 +263,10 @@ public class AionField {
 
         playerState.payStake(stakeAmount);
 
-        Bridge newBridge = new Bridge(
-                this.bridgeCount++, playerState.getPlayerId(), move.getFee(), side1, side2
-        );
-        this.bridges.add(newBridge);
+        putBridge(new Bridge(
+                this.bridgeCount++, playerState.getPlayerId(), move.getFee(), side1, side2,
+                this.settings.getTransactionSpeed()
+        ));
     }
 
     private void processRemoveMove(AionMove move, AionPlayerState playerState) {
@@ -188,29 +281,58 @@ public class AionField {
             return;
         }
 
-        playerState.receiveStake(AionEngine.configuration.getInt("stakeAmount"));
+        playerState.receiveStake(this.settings.getStakeAmount());
 
-        bridge.getSides().get(0).removeBridge(bridge);
-        bridge.getSides().get(1).removeBridge(bridge);
         removeTransactions(bridge);
-        this.bridges.remove(bridge);
+        removeBridge(bridge);
     }
 
     private void removeTransactions(Bridge bridge) {
-        ArrayList<Transaction> floatingTransactions = new ArrayList<>();
+        int[] rows = this.transactions.getCrossingRows(
+                bridge.getSides().get(0).getIndex(), bridge.getSides().get(1).getIndex()
+        );
+        int floatingCount = 0;
 
-        for (Transaction transaction : this.transactions) {
-            if (!transaction.getCurrentBridges().contains(bridge)) continue;
+        for (int row : rows) {
+            if (!this.transactions.getBridges(row).contains(bridge)) continue;
 
-            transaction.getCurrentBridges().remove(bridge);
+            this.transactions.removeBridge(row, bridge);
 
-            // Remove transaction if it no longer sits on any bridge
-            if (transaction.getCurrentBridges().size() <= 0) {
-                floatingTransactions.add(transaction);
+            if (this.transactions.getBridges(row).size() <= 0) {
+                rows[floatingCount++] = row;
             }
         }
 
-        floatingTransactions.forEach(t -> this.transactions.remove(t));
+        // Remove transactions that no longer sit on any bridge, highest row
+        // first so the rows moved into their places are never floating
+        Arrays.sort(rows, 0, floatingCount);
+        for (int i = floatingCount - 1; i >= 0; i--) {
+            removeTransaction(rows[i]);
+        }
+    }
+
+    /**
+     * Transaction reached other side of the bridge, pays the fee
+     */
+    private void arriveTransaction(int row, AionState state) {
+        ArrayList<Bridge> bridges = this.transactions.getBridges(row);
+        this.transactions.arrive(row);
+
+        for (Bridge bridge : bridges) {
+            state.getLedger().receiveFee(bridge.getPlayerId(), bridge.getFee() / bridges.size());
+        }
+
+        if (this.transactions.getCurrentNetwork(row) == this.transactions.getTo(row)) { // Goal reached
+            this.transactions.setCompleted(row);
+        }
+    }
+
+    private void removeTransaction(int row) {
+        this.transactions.remove(row);
+
+        if (this.delta != null) {
+            this.delta.transactionRemoved(row);
+        }
     }
 
     private Network getMoveNetwork(String code, AionMove move) {
@@ -236,12 +358,32 @@ public class AionField {
             int x = positionInput.getInt("x");
             int y = positionInput.getInt("y");
 
-            networks.add(new Network(name, code, new Point(x, y)));
+            networks.add(new Network(i, name, code, new Point(x, y)));
         }
 
         return networks;
     }
 
+    /**
+     * Networks can have a popularity, which makes them more likely to be
+     * the start or end of a transaction. Missing popularity counts as 1.
+     */
+    private TransactionSpawner parseSpawner(JSONArray input) {
+        boolean weighted = false;
+        double[] weights = new double[input.length()];
+
+        for (int i = 0; i < input.length(); i++) {
+            JSONObject networkInput = input.getJSONObject(i);
+
+            weighted |= networkInput.has("popularity");
+            weights[i] = networkInput.optDouble("popularity", 1);
+        }
+
+        return weighted
+                ? new TransactionSpawner(weights)
+                : new TransactionSpawner(input.length());
+    }
+
     @Override
     public String toString() {
         return this.networks.stream()
@@ -249,67 +391,220 @@ public class AionField {
                 .collect(Collectors.joining(";"));
     }
 
+    /**
+     * Same as joining the strings of the transactions, but put together
+     * from strings that are made once per route, network and bridge.
+     */
     public String transactionsToString() {
-        if (this.transactions.size() <= 0) {
+        TransactionTable transactions = this.transactions;
+
+        if (transactions.size() <= 0) {
             return "null";
         }
 
-        return this.transactions.stream()
-                .map(Transaction::toString)
-                .collect(Collectors.joining(";"));
+        StringBuilder builder = new StringBuilder(transactions.size() * 16);
+        for (int row : transactions.getRowsById()) {
+            if (builder.length() > 0) {
+                builder.append(';');
+            }
+
+            appendTransactionString(builder, row);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Appends the string of the transaction in the given row of the
+     * transaction table, the same as Transaction.toString(). The string is
+     * kept in the table until the transaction moves.
+     */
+    public void appendTransactionString(StringBuilder builder, int row) {
+        TransactionTable transactions = this.transactions;
+        String string = transactions.getString(row);
+
+        if (string == null) {
+            StringBuilder rowBuilder = new StringBuilder(16);
+            rowBuilder.append(getRouteString(transactions.getFrom(row), transactions.getTo(row))).append(':');
+            appendLocationString(rowBuilder, row);
+
+            string = rowBuilder.toString();
+            transactions.setString(row, string);
+        }
+
+        builder.append(string);
     }
 
+    /**
+     * Appends the code of the network the transaction in the given row is
+     * on, or the sides of the bridge it is crossing
+     */
+    public void appendLocationString(StringBuilder builder, int row) {
+        TransactionTable transactions = this.transactions;
+
+        int currentNetwork = transactions.getCurrentNetwork(row);
+        if (currentNetwork != TransactionTable.NONE) {
+            builder.append(this.networks.get(currentNetwork).getCode());
+        } else {
+            builder.append(transactions.getBridges(row).get(0).toSimpleString());
+        }
+    }
+
+    /**
+     * Only made again after a bridge is built or removed
+     */
     public String bridgesToString() {
+        if (this.bridgesString != null) {
+            return this.bridgesString;
+        }
+
         if (this.bridges.size() <= 0) {
-            return "null";
+            this.bridgesString = "null";
+        } else {
+            this.bridgesString = this.bridges.stream()
+                    .map(Bridge::toString)
+                    .collect(Collectors.joining(";"));
         }
 
-        return this.bridges.stream()
-                .map(Bridge::toString)
-                .collect(Collectors.joining(";"));
+        return this.bridgesString;
+    }
+
+    private String getRouteString(int from, int to) {
+        int index = from * this.networks.size() + to;
+        String route = this.routeStrings[index];
+
+        if (route == null) {
+            route = this.networks.get(from).getCode() + ">" + this.networks.get(to).getCode();
+            this.routeStrings[index] = route;
+        }
+
+        return route;
     }
 
     public Network findNetwork(String code) {
-        return this.networks.stream()
-                .filter(n -> n.getCode().equals(code))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException(
-                        String.format("Network '%s' not found", code)
-                ));
+        int index = this.symbols.indexOf(code);
+
+        if (index < 0) {
+            throw new RuntimeException(String.format("Network '%s' not found", code));
+        }
+
+        return this.networks.get(index);
     }
 
     public Bridge findBridge(int id) {
-        return this.bridges.stream()
-                .filter(b -> b.getId() == id)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException(
-                        String.format("Bridge '%s' not found", id)
-                ));
+        Bridge bridge = this.bridgesById.get(id);
+
+        if (bridge == null) {
+            throw new RuntimeException(String.format("Bridge '%s' not found", id));
+        }
+
+        return bridge;
     }
 
     private Bridge findBridge(String code1, String code2, int playerId) {
-        return this.bridges.stream()
-                .filter(b -> b.getPlayerId() == playerId)
-                .filter(b -> {
-                    String c1 = b.getSides().get(0).getCode();
-                    String c2 = b.getSides().get(1).getCode();
-
-                    return (c1.equals(code1) && c2.equals(code2))
-                            || (c1.equals(code2) && c2.equals(code1));
-                })
-                .findFirst()
-                .orElse(null);
+        return this.bridgeIndex.find(
+                this.symbols.indexOf(code1), this.symbols.indexOf(code2), playerId
+        );
     }
 
     public void addBridge(int playerId, int fee, String code1, String code2) {
-        Bridge bridge = new Bridge(
-                this.bridgeCount++, playerId, fee, findNetwork(code1), findNetwork(code2)
-        );
+        Network side1 = findNetwork(code1);
+        Network side2 = findNetwork(code2);
+
+        putBridge(new Bridge(
+                this.bridgeCount++, playerId, fee, side1, side2,
+                this.settings.getTransactionSpeed()
+        ));
+    }
+
+    private void putBridge(Bridge bridge) {
+        ownBridges();
+        this.bridgesString = null;
+
         this.bridges.add(bridge);
+        this.bridgesById.put(bridge.getId(), bridge);
+        this.bridgeIndex.add(bridge);
+        updateShortestPaths(bridge.getSides().get(0), bridge.getSides().get(1));
+
+        if (this.delta != null) {
+            this.delta.bridgeBuilt(bridge);
+        }
+    }
+
+    private void removeBridge(Bridge bridge) {
+        ownBridges();
+        this.bridgesString = null;
+
+        this.bridges.remove(bridge);
+        this.bridgesById.remove(bridge.getId());
+        this.bridgeIndex.remove(bridge);
+        updateShortestPaths(bridge.getSides().get(0), bridge.getSides().get(1));
+
+        if (this.delta != null) {
+            this.delta.bridgeRemoved(bridge);
+        }
+    }
+
+    /**
+     * Makes copies of the bridge collections and routes if they are still
+     * shared with another field, before this field changes them.
+     */
+    private void ownBridges() {
+        if (!this.bridgesShared) return;
+
+        this.bridges = new ArrayList<>(this.bridges);
+        this.bridgesById = new HashMap<>(this.bridgesById);
+        this.bridgeIndex = new BridgeIndex(this.bridgeIndex);
+        this.graph = new NetworkGraph(this.graph);
+        this.shortestPaths = new DynamicShortestPaths(this.shortestPaths, this.graph);
+        this.bridgesShared = false;
+    }
+
+    private void updateShortestPaths(Network side1, Network side2) {
+        int index1 = side1.getIndex();
+        int index2 = side2.getIndex();
+        int oldFee = this.graph.getCheapestFee(index1, index2);
+
+        if (this.graph.updatePair(index1, index2, this.bridgeIndex.getBridges(index1, index2))) {
+            this.shortestPaths.update(index1, index2, oldFee);
+        }
     }
 
-    private void addTransaction(Network from, Network to) {
-        this.transactions.add(new Transaction(this.transactionCount++, from, to));
+    /**
+     * Routes for the current bridges. The parts that don't change are shared
+     * with copies of this field.
+     */
+    public RoutingTable getRoutingTable() {
+        return this.shortestPaths.getRoutingTable();
+    }
+
+    public AionContext getContext() {
+        return this.context;
+    }
+
+    public AionSettings getSettings() {
+        return this.settings;
+    }
+
+    /**
+     * @return Changes made since this field was copied from the previous
+     * round, complete once the field is copied again. Null for a field that
+     * wasn't made by copying.
+     */
+    public FieldDelta getDelta() {
+        return this.delta;
+    }
+
+    public NetworkSymbolTable getSymbols() {
+        return this.symbols;
+    }
+
+    public NetworkGraph getGraph() {
+        return this.graph;
+    }
+
+    public Network getNetwork(int index) {
+        return this.networks.get(index);
     }
 
     public ArrayList<Network> getNetworks() {
@@ -320,7 +615,11 @@ public class AionField {
         return this.bridges;
     }
 
-    public ArrayList<Transaction> getTransactions() {
+    public List<Transaction> getTransactions() {
+        return this.transactions.asList();
+    }
+
+    public TransactionTable getTransactionTable() {
         return this.transactions;
     }
 }
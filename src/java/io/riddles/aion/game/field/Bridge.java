@@ -24,7 +24,11 @@ import java.util.ArrayList;
 /**
  * io.riddles.aion.game.field.Bridge - Created on 14-3-18
  *
- * [description]
+ * Immutable, shared by all fields from the round it was built until the
+ * round it is removed. The number of rounds a transaction takes to cross
+ * is worked out once, by adding up the travel per round in the same
+ * floating point steps a transaction moving along the bridge would take.
+ * Its strings for the bots are made once as well.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
@@ -35,42 +39,40 @@ public class Bridge {
     private ArrayList<Network> sides;
     private int fee;
     private double distance;
+    private double step;  // travel per round
+    private int crossingRounds;
+    private String string;
+    private String simpleString;
 
-    public Bridge(int id, int playerId, int fee, Network side1, Network side2) {
+    public Bridge(int id, int playerId, int fee, Network side1, Network side2, int transactionSpeed) {
         this.id = id;
         this.playerId = playerId;
         this.fee = fee;
-        this.sides = new ArrayList<>();
+        this.sides = new ArrayList<>(2);
         this.distance = side1.getPosition().distance(side2.getPosition());
+        this.step = transactionSpeed / this.distance;
 
-        addSide(side1);
-        addSide(side2);
-    }
-
-    public Bridge(Bridge bridge, AionField field) {
-        this.id = bridge.id;
-        this.playerId = bridge.playerId;
-        this.fee = bridge.fee;
-        this.distance = bridge.distance;
-        this.sides = new ArrayList<>();
+        this.sides.add(side1);
+        this.sides.add(side2);
 
-        // Searches sides from networks that should be already cloned
-        bridge.sides.forEach(side -> addSide(field.findNetwork(side.getCode())));
-    }
+        double travel = 0;
+        int rounds = 0;
+        do {
+            travel = travel + this.step;
+            rounds++;
+        } while (travel < 1);
+        this.crossingRounds = rounds;
 
-    private void addSide(Network side) {
-        this.sides.add(side);
-        side.addBridge(this);
+        this.simpleString = String.format("%s-%s", side1.getCode(), side2.getCode());
+        this.string = String.format("%s:%d-%d", this.simpleString, this.playerId, this.fee);
     }
 
     public String toString() {
-        String side1 = this.sides.get(0).getCode();
-        String side2 = this.sides.get(1).getCode();
-        return String.format("%s-%s:%d-%d", side1, side2, this.playerId, this.fee);
+        return this.string;
     }
 
     public String toSimpleString() {
-        return String.format("%s-%s", this.sides.get(0).getCode(), this.sides.get(1).getCode());
+        return this.simpleString;
     }
 
     public int getId() {
@@ -92,4 +94,24 @@ public class Bridge {
     public double getDistance() {
         return this.distance;
     }
+
+    /**
+     * @return Rounds of moving it takes a transaction to reach the other side
+     */
+    public int getCrossingRounds() {
+        return this.crossingRounds;
+    }
+
+    /**
+     * @param rounds Rounds moved along the bridge so far
+     * @return Part of the bridge traveled after moving the given rounds
+     */
+    public double getTravelCompletion(int rounds) {
+        double travel = 0;
+        for (int i = 0; i < rounds; i++) {
+            travel = travel + this.step;
+        }
+
+        return travel;
+    }
 }
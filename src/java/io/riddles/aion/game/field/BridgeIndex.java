@@ -0,0 +1,223 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * io.riddles.aion.game.field.BridgeIndex - Created on 18-10-26
+ *
+ * Bridges grouped by the unordered pair of networks they connect. Every
+ * pair keeps its bridges in build order and the group of bridges that
+ * share the cheapest fee, which is rebuilt when a bridge on the pair is
+ * built or removed. Lookups go through an open addressing table on the
+ * pair's network indices, so they don't allocate. Copies share the pairs,
+ * which are replaced rather than changed when a bridge is built or removed.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class BridgeIndex {
+
+    private int networkCount;
+    private int[] keys;  // pair key + 1, 0 for an empty slot
+    private BridgePair[] pairs;
+    private int pairCount;
+
+    BridgeIndex(int networkCount) {
+        this.networkCount = networkCount;
+        this.keys = new int[16];
+        this.pairs = new BridgePair[16];
+        this.pairCount = 0;
+    }
+
+    BridgeIndex(BridgeIndex index) {
+        this.networkCount = index.networkCount;
+        this.keys = index.keys.clone();
+        this.pairs = index.pairs.clone();
+        this.pairCount = index.pairCount;
+    }
+
+    void add(Bridge bridge) {
+        int side1 = bridge.getSides().get(0).getIndex();
+        int side2 = bridge.getSides().get(1).getIndex();
+        int slot = findSlot(side1, side2);
+        BridgePair pair = slot >= 0 ? new BridgePair(this.pairs[slot]) : new BridgePair();
+
+        pair.bridges.add(bridge);
+        pair.updateCheapest();
+
+        if (slot >= 0) {
+            this.pairs[slot] = pair;
+        } else {
+            put(key(side1, side2), pair);
+        }
+    }
+
+    void remove(Bridge bridge) {
+        int slot = findSlot(
+                bridge.getSides().get(0).getIndex(), bridge.getSides().get(1).getIndex()
+        );
+
+        if (slot < 0 || !this.pairs[slot].bridges.contains(bridge)) return;
+
+        BridgePair pair = new BridgePair(this.pairs[slot]);
+        pair.bridges.remove(bridge);
+        pair.updateCheapest();
+        this.pairs[slot] = pair;
+    }
+
+    /**
+     * The returned list is shared by everything that asks for it and must
+     * not be modified. A new list is made when the group changes.
+     * @return All bridges between the two networks with the lowest fee
+     */
+    ArrayList<Bridge> getCheapestBridges(int side1, int side2) {
+        BridgePair pair = getPair(side1, side2);
+
+        if (pair == null || pair.cheapest.isEmpty()) {
+            throw new RuntimeException(
+                    String.format("Bridge '%d-%d' not found", side1, side2)
+            );
+        }
+
+        return pair.cheapest;
+    }
+
+    /**
+     * The returned list is shared and must not be modified.
+     * @return All bridges between the two networks in build order
+     */
+    List<Bridge> getBridges(int side1, int side2) {
+        BridgePair pair = getPair(side1, side2);
+
+        return pair != null ? pair.bridges : Collections.emptyList();
+    }
+
+    /**
+     * @return The bridge between the two networks owned by given player, or null
+     */
+    Bridge find(int side1, int side2, int playerId) {
+        BridgePair pair = getPair(side1, side2);
+
+        if (pair == null) return null;
+
+        for (Bridge bridge : pair.bridges) {
+            if (bridge.getPlayerId() == playerId) {
+                return bridge;
+            }
+        }
+
+        return null;
+    }
+
+    private BridgePair getPair(int side1, int side2) {
+        int slot = findSlot(side1, side2);
+        return slot >= 0 ? this.pairs[slot] : null;
+    }
+
+    private int findSlot(int side1, int side2) {
+        int key = key(side1, side2) + 1;
+        int mask = this.keys.length - 1;
+
+        for (int slot = hash(key) & mask; this.keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (this.keys[slot] == key) {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    private void put(int pairKey, BridgePair pair) {
+        if ((this.pairCount + 1) * 2 > this.keys.length) {
+            resize();
+        }
+
+        int key = pairKey + 1;
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while (this.keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        this.keys[slot] = key;
+        this.pairs[slot] = pair;
+        this.pairCount++;
+    }
+
+    private void resize() {
+        int[] oldKeys = this.keys;
+        BridgePair[] oldPairs = this.pairs;
+
+        this.keys = new int[oldKeys.length * 2];
+        this.pairs = new BridgePair[oldKeys.length * 2];
+        this.pairCount = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i] - 1, oldPairs[i]);
+            }
+        }
+    }
+
+    private int key(int side1, int side2) {
+        return side1 < side2
+                ? side1 * this.networkCount + side2
+                : side2 * this.networkCount + side1;
+    }
+
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class BridgePair {
+
+        private ArrayList<Bridge> bridges;
+        private ArrayList<Bridge> cheapest;
+
+        private BridgePair() {
+            this.bridges = new ArrayList<>(2);
+            this.cheapest = new ArrayList<>(0);
+        }
+
+        private BridgePair(BridgePair pair) {
+            this.bridges = new ArrayList<>(pair.bridges);
+            this.cheapest = pair.cheapest;
+        }
+
+        private void updateCheapest() {
+            ArrayList<Bridge> cheapest = new ArrayList<>(2);
+
+            for (Bridge bridge : this.bridges) {
+                if (cheapest.isEmpty() || bridge.getFee() < cheapest.get(0).getFee()) {
+                    cheapest.clear();
+                    cheapest.add(bridge);
+                } else if (bridge.getFee() == cheapest.get(0).getFee()) {
+                    cheapest.add(bridge);
+                }
+            }
+
+            this.cheapest = cheapest;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * io.riddles.aion.game.field.DynamicShortestPaths - Created on 18-10-26
+ *
+ * Keeps a RoutingTable up to date when the bridges between a single pair
+ * of networks change, which happens when one bridge is built or removed.
+ * Routes have to be the ones ShortestPathHandler finds, ties included,
+ * and its tie order depends on every distance the search improves along
+ * the way, not only on the ones that end up on a shortest route. So a
+ * source is searched again only if its search improves a distance over
+ * the changed pair, before or after the change. Every source whose
+ * distances or tight neighbors change is one of those.
+ *
+ * Whether it does follows from the source's previous search. Until the
+ * pair is used, the new search visits the networks in the same order, so
+ * the distance of the side visited last is still the lowest over its
+ * neighbors that were visited before the other side.
+ *
+ * Searches for different sources, and the route trees towards different
+ * networks, don't depend on each other and are filled in parallel on a
+ * dedicated fork-join pool when there's enough work.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class DynamicShortestPaths {
+
+    private static final long PARALLEL_THRESHOLD = 1 << 16;  // in route entries
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private int size;
+    private ArrayList<Network> networks;
+    private NetworkGraph graph;
+    private int[][] visitRanks;  // by source, replaced when it is searched again
+    private RoutingTable routingTable;
+
+    public DynamicShortestPaths(ArrayList<Network> networks, NetworkGraph graph) {
+        this.size = graph.size();
+        this.networks = networks;
+        this.graph = graph;
+        this.visitRanks = new int[this.size][];
+        this.routingTable = new RoutingTable(this.size);
+
+        search(IntStream.range(0, this.size).toArray());
+    }
+
+    /**
+     * @param graph Copy of the graph of shortestPaths, which this one changes from now on
+     */
+    public DynamicShortestPaths(DynamicShortestPaths shortestPaths, NetworkGraph graph) {
+        this.size = shortestPaths.size;
+        this.networks = shortestPaths.networks;  // immutable
+        this.graph = graph;
+        this.visitRanks = shortestPaths.visitRanks.clone();
+        this.routingTable = new RoutingTable(shortestPaths.routingTable);
+    }
+
+    /**
+     * Updates all routes that are affected by a change of the edges between
+     * side1 and side2, after the graph has been changed.
+     * @param oldFee Cheapest fee between the two sides before the change,
+     *               or NetworkGraph.NO_EDGE
+     */
+    public void update(int side1, int side2, int oldFee) {
+        int fee = this.graph.getCheapestFee(side1, side2);
+
+        int[] sources = IntStream.range(0, this.size)
+                .filter(from -> improvesOverPair(from, side1, side2, oldFee)
+                        || improvesOverPair(from, side1, side2, fee))
+                .toArray();
+
+        search(sources);
+    }
+
+    public RoutingTable getRoutingTable() {
+        return this.routingTable;
+    }
+
+    /**
+     * Whether the search from a source improves a distance over the pair
+     * if the fee between them is the given one, provided that it visits
+     * the networks in the same order as its previous search until then.
+     */
+    private boolean improvesOverPair(int from, int side1, int side2, int fee) {
+        if (fee == NetworkGraph.NO_EDGE) return false;
+
+        int[] ranks = this.visitRanks[from];
+        int[] costs = this.routingTable.getCosts(from);
+        int first = ranks[side1] < ranks[side2] ? side1 : side2;
+        int last = first == side1 ? side2 : side1;
+
+        if (ranks[first] == RoutingTable.UNREACHABLE) return false;
+
+        // Distance of the last side when the first one is visited
+        int distance = RoutingTable.UNREACHABLE;
+        for (int edge = this.graph.firstEdge(last); edge < this.graph.firstEdge(last + 1); edge++) {
+            int neighbor = this.graph.getTarget(edge);
+
+            if (ranks[neighbor] < ranks[first]) {
+                distance = Math.min(distance, costs[neighbor] + this.graph.getFee(edge));
+            }
+        }
+
+        return costs[first] + fee < distance;
+    }
+
+    /**
+     * Searches from every source again and puts the results in the table
+     */
+    private void search(int[] sources) {
+        int[][] nextHops = new int[sources.length][];
+
+        forEachChunked(sources.length, (long) sources.length * this.size,
+                () -> new ShortestPathHandler(this.networks, this.graph), (handler, i) -> {
+                    int from = sources[i];
+                    int[] costs = new int[this.size];
+                    int[] ranks = new int[this.size];
+
+                    nextHops[i] = new int[this.size];
+                    handler.findRoutes(from, nextHops[i], costs, ranks);
+                    this.routingTable.setCosts(from, costs);
+                    this.visitRanks[from] = ranks;
+                });
+
+        // Each tree takes the hops of all searched sources towards its network
+        forEachChunked(this.size, (long) sources.length * this.size, () -> null, (ignored, to) -> {
+            for (int i = 0; i < sources.length; i++) {
+                this.routingTable.setNextHop(sources[i], to, nextHops[i][to]);
+            }
+        });
+    }
+
+    /**
+     * Calls action for 0..count-1. Split in chunks over the pool if the
+     * total work is large enough, each chunk with its own scratch object.
+     */
+    private static <T> void forEachChunked(int count, long work, Supplier<T> scratch, ObjIntConsumer<T> action) {
+        if (count <= 0) return;
+
+        int parallelism = POOL.getParallelism();
+
+        if (work < PARALLEL_THRESHOLD || parallelism <= 1) {
+            T chunkScratch = scratch.get();
+            for (int i = 0; i < count; i++) {
+                action.accept(chunkScratch, i);
+            }
+            return;
+        }
+
+        int chunks = Math.min(count, parallelism * 4);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int start = (int) ((long) count * chunk / chunks);
+            int end = (int) ((long) count * (chunk + 1) / chunks);
+
+            tasks.add(POOL.submit(() -> {
+                T chunkScratch = scratch.get();
+                for (int i = start; i < end; i++) {
+                    action.accept(chunkScratch, i);
+                }
+            }));
+        }
+
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+}
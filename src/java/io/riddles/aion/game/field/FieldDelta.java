@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * io.riddles.aion.game.field.FieldDelta - Created on 18-10-26
+ *
+ * Changes made to a field since it was copied from the previous round's
+ * field: bridges built and removed, the order transactions were added
+ * and removed in, and the rows of the transactions that were spawned or
+ * changed with their position in the table. Recorded while the field
+ * changes and sealed when the field is copied for the next round.
+ * Applying it to a copy of the previous field gives this field again.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class FieldDelta {
+
+    private ArrayList<Bridge> bridgeChanges;
+    private BitSet removedBridges;  // positions in bridgeChanges that were removals
+    private ArrayList<Integer> transactionOperations;  // removed row, or minus rows added
+    private ArrayList<Integer> transactionPositions;
+    private TransactionTable transactions;
+    private int transactionCount;
+    private int bridgeCount;
+    private int tick;
+    private boolean sealed;
+
+    FieldDelta(ArrayList<Network> networks) {
+        this.bridgeChanges = new ArrayList<>();
+        this.removedBridges = new BitSet();
+        this.transactionOperations = new ArrayList<>();
+        this.transactionPositions = new ArrayList<>();
+        this.transactions = new TransactionTable(networks);
+        this.sealed = false;
+    }
+
+    void bridgeBuilt(Bridge bridge) {
+        this.bridgeChanges.add(bridge);
+    }
+
+    void bridgeRemoved(Bridge bridge) {
+        this.removedBridges.set(this.bridgeChanges.size());
+        this.bridgeChanges.add(bridge);
+    }
+
+    void transactionsAdded(int count) {
+        int last = this.transactionOperations.size() - 1;
+
+        if (last >= 0 && this.transactionOperations.get(last) < 0) {
+            this.transactionOperations.set(last, this.transactionOperations.get(last) - count);
+        } else {
+            this.transactionOperations.add(-count);
+        }
+    }
+
+    void transactionRemoved(int row) {
+        this.transactionOperations.add(row);
+    }
+
+    /**
+     * Stores a copy of the dirty rows of the field's transactions, which
+     * are exactly the ones spawned or changed since it was copied.
+     */
+    void seal(TransactionTable transactions, int transactionCount, int bridgeCount) {
+        if (this.sealed) return;
+
+        transactions.forEachDirty(row -> {
+            this.transactionPositions.add(row);
+            this.transactions.setRow(this.transactions.size(), transactions, row);
+        });
+
+        this.transactionCount = transactionCount;
+        this.bridgeCount = bridgeCount;
+        this.tick = transactions.getTick();
+        this.sealed = true;
+    }
+
+    public boolean isSealed() {
+        return this.sealed;
+    }
+
+    int getBridgeChangeCount() {
+        return this.bridgeChanges.size();
+    }
+
+    Bridge getBridgeChange(int index) {
+        return this.bridgeChanges.get(index);
+    }
+
+    boolean isBridgeRemoval(int index) {
+        return this.removedBridges.get(index);
+    }
+
+    int getTransactionOperationCount() {
+        return this.transactionOperations.size();
+    }
+
+    /**
+     * @return The removed row, or minus the amount of rows added
+     */
+    int getTransactionOperation(int index) {
+        return this.transactionOperations.get(index);
+    }
+
+    int getTransactionChangeCount() {
+        return this.transactions.size();
+    }
+
+    int getTransactionPosition(int index) {
+        return this.transactionPositions.get(index);
+    }
+
+    TransactionTable getTransactions() {
+        return this.transactions;
+    }
+
+    int getTransactionCount() {
+        return this.transactionCount;
+    }
+
+    int getBridgeCount() {
+        return this.bridgeCount;
+    }
+
+    int getTick() {
+        return this.tick;
+    }
+}
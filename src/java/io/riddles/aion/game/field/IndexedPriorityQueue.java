@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.util.Arrays;
+
+/**
+ * io.riddles.aion.game.field.IndexedPriorityQueue - Created on 18-10-26
+ *
+ * Binary min-heap over the integer indices 0..capacity-1, with a long
+ * priority per index. Keeps the heap position of every index so contains
+ * and decrease-key are O(1) and O(log n).
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class IndexedPriorityQueue {
+
+    private int size;
+    private int[] heap;
+    private int[] positions;
+    private long[] keys;
+
+    IndexedPriorityQueue(int capacity) {
+        this.size = 0;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new long[capacity];
+
+        Arrays.fill(this.positions, -1);
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    boolean contains(int index) {
+        return this.positions[index] >= 0;
+    }
+
+    long getKey(int index) {
+        return this.keys[index];
+    }
+
+    void insert(int index, long key) {
+        this.keys[index] = key;
+        this.heap[this.size] = index;
+        this.positions[index] = this.size;
+        siftUp(this.size++);
+    }
+
+    void decreaseKey(int index, long key) {
+        this.keys[index] = key;
+        siftUp(this.positions[index]);
+    }
+
+    /**
+     * Removes the index with the lowest key
+     * @return The removed index
+     */
+    int poll() {
+        int min = this.heap[0];
+
+        this.size--;
+        this.positions[min] = -1;
+
+        if (this.size > 0) {
+            int last = this.heap[this.size];
+            this.heap[0] = last;
+            this.positions[last] = 0;
+            siftDown(0);
+        }
+
+        return min;
+    }
+
+    void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.positions[this.heap[i]] = -1;
+        }
+
+        this.size = 0;
+    }
+
+    private void siftUp(int position) {
+        int index = this.heap[position];
+        long key = this.keys[index];
+
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parent = this.heap[parentPosition];
+
+            if (this.keys[parent] <= key) break;
+
+            this.heap[position] = parent;
+            this.positions[parent] = position;
+            position = parentPosition;
+        }
+
+        this.heap[position] = index;
+        this.positions[index] = position;
+    }
+
+    private void siftDown(int position) {
+        int index = this.heap[position];
+        long key = this.keys[index];
+        int half = this.size >>> 1;
+
+        while (position < half) {
+            int childPosition = 2 * position + 1;
+            int child = this.heap[childPosition];
+            int rightPosition = childPosition + 1;
+
+            if (rightPosition < this.size && this.keys[this.heap[rightPosition]] < this.keys[child]) {
+                childPosition = rightPosition;
+                child = this.heap[childPosition];
+            }
+
+            if (key <= this.keys[child]) break;
+
+            this.heap[position] = child;
+            this.positions[child] = position;
+            position = childPosition;
+        }
+
+        this.heap[position] = index;
+        this.positions[index] = position;
+    }
+}
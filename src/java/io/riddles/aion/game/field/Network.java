@@ -20,67 +20,31 @@
 package io.riddles.aion.game.field;
 
 import java.awt.*;
-import java.util.ArrayList;
 
 /**
  * io.riddles.aion.game.field.NetWork - Created on 8-3-18
  *
- * [description]
+ * Immutable, the same instances are shared by every field of a match.
+ * Bridges on a network are kept by the field.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
 public class Network {
 
+    private int index;
     private String name;
     private String code;
     private Point position;
-    private ArrayList<Bridge> bridges;
 
-    public Network(String name, String code, Point position) {
+    public Network(int index, String name, String code, Point position) {
+        this.index = index;
         this.name = name;
         this.code = code;
         this.position = position;
-        this.bridges = new ArrayList<>();
     }
 
-    public Network(Network network) {
-        this.name = network.name;
-        this.code = network.code;
-        this.position = new Point(network.position);
-        this.bridges = new ArrayList<>(); // bridges added when cloning bridges
-    }
-
-    public void addBridge(Bridge bridge) {
-        this.bridges.add(bridge);
-    }
-
-    public void removeBridge(Bridge bridge) {
-        this.bridges.remove(bridge);
-    }
-
-    public ArrayList<Bridge> getCheapestBridgesTo(Network network) {
-        ArrayList<Bridge> cheapestBridges = new ArrayList<>();
-
-        Bridge minBridge = null;
-        for (Bridge bridge : this.bridges) {
-            if (!bridge.getSides().contains(network)) continue;
-
-            if (minBridge == null || bridge.getFee() < minBridge.getFee()) {
-                cheapestBridges.clear();
-                minBridge = bridge;
-                cheapestBridges.add(bridge);
-            } else if (minBridge.getFee() == bridge.getFee()) {
-                cheapestBridges.add(bridge);
-            }
-        }
-
-        if (cheapestBridges.size() <= 0) {
-            throw new RuntimeException(
-                    String.format("Bridge '%s-%s' not found", this.code, network.getCode())
-            );
-        }
-
-        return cheapestBridges;
+    public int getIndex() {
+        return this.index;
     }
 
     public String getCode() {
@@ -91,10 +55,6 @@ public class Network {
         return this.position;
     }
 
-    public ArrayList<Bridge> getBridges() {
-        return this.bridges;
-    }
-
     @Override
     public String toString() {
         return String.format("%s:%d,%d", this.code, this.position.x, this.position.y);
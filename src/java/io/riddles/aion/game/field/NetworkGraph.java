@@ -0,0 +1,278 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * io.riddles.aion.game.field.NetworkGraph - Created on 18-10-26
+ *
+ * Compressed sparse row adjacency of the networks, with one edge per
+ * connected pair (in both directions) holding the cheapest fee over all
+ * bridges between them. Edges of a network are in the order the old node
+ * graph visited its neighbors, which ShortestPathHandler's tie order
+ * depends on: lower indexed networks in the order of their first bridge,
+ * followed by higher indexed networks in ascending order.
+ *
+ * When the bridges of one pair change, only that pair's two edges are
+ * inserted, moved or removed in place. Copies don't share any arrays.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class NetworkGraph {
+
+    public static final int NO_EDGE = Integer.MAX_VALUE;
+
+    private int size;
+    private int edgeCount;
+    private int[] offsets;
+    private int[] targets;
+    private int[] fees;
+    private int[] firstBridges;  // id of the oldest bridge on the pair
+
+    public NetworkGraph(int size) {
+        this.size = size;
+        this.edgeCount = 0;
+        this.offsets = new int[size + 1];
+        this.targets = new int[16];
+        this.fees = new int[16];
+        this.firstBridges = new int[16];
+    }
+
+    /**
+     * @param bridges All bridges, in the order they were built
+     */
+    public NetworkGraph(int size, List<Bridge> bridges) {
+        this(size);
+
+        ArrayList<ArrayList<Bridge>> networkBridges = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            networkBridges.add(new ArrayList<>());
+        }
+        for (Bridge bridge : bridges) {
+            for (Network side : bridge.getSides()) {
+                networkBridges.get(side.getIndex()).add(bridge);
+            }
+        }
+
+        int[] slot = new int[size];
+        int[] lower = new int[size];
+        int[] higher = new int[size];
+        int[] minFees = new int[size];
+        int[] firstIds = new int[size];
+        Arrays.fill(slot, -1);
+
+        for (int i = 0; i < size; i++) {
+            int lowerCount = 0;
+            int higherCount = 0;
+
+            for (Bridge bridge : networkBridges.get(i)) {
+                for (Network side : bridge.getSides()) {
+                    int neighbor = side.getIndex();
+                    if (neighbor == i) continue;
+
+                    if (slot[neighbor] < 0) {
+                        slot[neighbor] = i;
+                        minFees[neighbor] = bridge.getFee();
+                        firstIds[neighbor] = bridge.getId();
+
+                        if (neighbor < i) {
+                            lower[lowerCount++] = neighbor;
+                        } else {
+                            higher[higherCount++] = neighbor;
+                        }
+                    } else if (bridge.getFee() < minFees[neighbor]) {
+                        minFees[neighbor] = bridge.getFee();
+                    }
+                }
+            }
+
+            Arrays.sort(higher, 0, higherCount);
+            ensureCapacity(this.edgeCount + lowerCount + higherCount);
+
+            for (int j = 0; j < lowerCount; j++) {
+                appendEdge(lower[j], minFees[lower[j]], firstIds[lower[j]]);
+                slot[lower[j]] = -1;
+            }
+            for (int j = 0; j < higherCount; j++) {
+                appendEdge(higher[j], minFees[higher[j]], firstIds[higher[j]]);
+                slot[higher[j]] = -1;
+            }
+
+            this.offsets[i + 1] = this.edgeCount;
+        }
+    }
+
+    public NetworkGraph(NetworkGraph graph) {
+        this.size = graph.size;
+        this.edgeCount = graph.edgeCount;
+        this.offsets = graph.offsets.clone();
+        this.targets = graph.targets.clone();
+        this.fees = graph.fees.clone();
+        this.firstBridges = graph.firstBridges.clone();
+    }
+
+    /**
+     * Sets the edges between two networks to the bridges that are now
+     * between them. Bridges are built with increasing ids, so the oldest
+     * one has the lowest id.
+     * @param bridges All bridges between side1 and side2, in the order they were built
+     * @return True if the fee or position of the edges changed
+     */
+    public boolean updatePair(int side1, int side2, List<Bridge> bridges) {
+        if (side1 == side2) return false;
+
+        int fee = NO_EDGE;
+        for (Bridge bridge : bridges) {
+            fee = Math.min(fee, bridge.getFee());
+        }
+        int firstBridge = bridges.isEmpty() ? -1 : bridges.get(0).getId();
+
+        boolean changed = setEdge(side1, side2, fee, firstBridge);
+        setEdge(side2, side1, fee, firstBridge);
+
+        return changed;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Edges of a network are firstEdge(network) until firstEdge(network + 1)
+     */
+    public int firstEdge(int network) {
+        return this.offsets[network];
+    }
+
+    public int getTarget(int edge) {
+        return this.targets[edge];
+    }
+
+    public int getFee(int edge) {
+        return this.fees[edge];
+    }
+
+    /**
+     * @return Cheapest fee between the two networks, or NO_EDGE if they aren't connected
+     */
+    public int getCheapestFee(int side1, int side2) {
+        int edge = findEdge(side1, side2);
+        return edge >= 0 ? this.fees[edge] : NO_EDGE;
+    }
+
+    private int findEdge(int source, int target) {
+        for (int edge = this.offsets[source]; edge < this.offsets[source + 1]; edge++) {
+            if (this.targets[edge] == target) {
+                return edge;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean setEdge(int source, int target, int fee, int firstBridge) {
+        int edge = findEdge(source, target);
+
+        if (edge >= 0 && fee != NO_EDGE && this.firstBridges[edge] == firstBridge) {
+            if (this.fees[edge] == fee) return false;
+
+            this.fees[edge] = fee;
+            return true;
+        }
+
+        if (edge >= 0) {
+            removeEdge(source, edge);
+        }
+        if (fee != NO_EDGE) {
+            insertEdge(source, findPosition(source, target, firstBridge), target, fee, firstBridge);
+        }
+
+        return edge >= 0 || fee != NO_EDGE;
+    }
+
+    /**
+     * Lower networks are ordered by their first bridge, higher ones by index
+     */
+    private int findPosition(int source, int target, int firstBridge) {
+        int edge = this.offsets[source];
+        int end = this.offsets[source + 1];
+
+        if (target < source) {
+            while (edge < end && this.targets[edge] < source && this.firstBridges[edge] < firstBridge) {
+                edge++;
+            }
+        } else {
+            while (edge < end && this.targets[edge] < target) {
+                edge++;
+            }
+        }
+
+        return edge;
+    }
+
+    private void insertEdge(int source, int edge, int target, int fee, int firstBridge) {
+        ensureCapacity(this.edgeCount + 1);
+
+        int moved = this.edgeCount - edge;
+        System.arraycopy(this.targets, edge, this.targets, edge + 1, moved);
+        System.arraycopy(this.fees, edge, this.fees, edge + 1, moved);
+        System.arraycopy(this.firstBridges, edge, this.firstBridges, edge + 1, moved);
+
+        this.targets[edge] = target;
+        this.fees[edge] = fee;
+        this.firstBridges[edge] = firstBridge;
+        this.edgeCount++;
+
+        for (int i = source + 1; i <= this.size; i++) {
+            this.offsets[i]++;
+        }
+    }
+
+    private void removeEdge(int source, int edge) {
+        int moved = this.edgeCount - edge - 1;
+        System.arraycopy(this.targets, edge + 1, this.targets, edge, moved);
+        System.arraycopy(this.fees, edge + 1, this.fees, edge, moved);
+        System.arraycopy(this.firstBridges, edge + 1, this.firstBridges, edge, moved);
+        this.edgeCount--;
+
+        for (int i = source + 1; i <= this.size; i++) {
+            this.offsets[i]--;
+        }
+    }
+
+    private void appendEdge(int target, int fee, int firstBridge) {
+        this.targets[this.edgeCount] = target;
+        this.fees[this.edgeCount] = fee;
+        this.firstBridges[this.edgeCount] = firstBridge;
+        this.edgeCount++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= this.targets.length) return;
+
+        int length = Math.max(capacity, this.targets.length * 2);
+        this.targets = Arrays.copyOf(this.targets, length);
+        this.fees = Arrays.copyOf(this.fees, length);
+        this.firstBridges = Arrays.copyOf(this.firstBridges, length);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * io.riddles.aion.game.field.NetworkSymbolTable - Created on 18-10-26
+ *
+ * Maps the network codes of the loaded map to dense indices 0..size-1,
+ * which are used everywhere the engine works on plain int arrays. Built
+ * once when the map is parsed and never changed afterwards.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class NetworkSymbolTable {
+
+    private String[] codes;
+    private HashMap<String, Integer> indices;
+
+    public NetworkSymbolTable(ArrayList<Network> networks) {
+        this.codes = new String[networks.size()];
+        this.indices = new HashMap<>(networks.size() * 2);
+
+        for (Network network : networks) {
+            this.codes[network.getIndex()] = network.getCode();
+            this.indices.put(network.getCode(), network.getIndex());
+        }
+    }
+
+    /**
+     * @return Index of the network with given code, or -1 if it doesn't exist
+     */
+    public int indexOf(String code) {
+        Integer index = this.indices.get(code);
+        return index != null ? index : -1;
+    }
+
+    public String getCode(int index) {
+        return this.codes[index];
+    }
+
+    public int size() {
+        return this.codes.length;
+    }
+}
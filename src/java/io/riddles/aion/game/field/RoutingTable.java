@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.util.Arrays;
+
+/**
+ * io.riddles.aion.game.field.RoutingTable - Created on 18-10-26
+ *
+ * Next hop and total fee for every pair of networks. The next hops
+ * towards one network form a reverse shortest path tree that every
+ * transaction going there looks up, and the fees from one network form
+ * a row. Copies share the trees and rows: a row is replaced as a whole
+ * and a tree is copied the first time one of its hops changes, so a copy
+ * only pays for the routes that change after it was made.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class RoutingTable {
+
+    public static final int NO_ROUTE = -1;
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private int size;
+    private int[][] trees;  // next hop towards a network, by the network the route starts at
+    private int[][] costs;  // fees from a network, by the network the route goes to
+    private boolean[] ownedTrees;  // not shared with a copy
+
+    RoutingTable(int size) {
+        this.size = size;
+        this.trees = new int[size][];
+        this.costs = new int[size][];
+        this.ownedTrees = new boolean[size];
+
+        for (int i = 0; i < size; i++) {
+            this.trees[i] = new int[size];
+            Arrays.fill(this.trees[i], NO_ROUTE);
+            this.trees[i][i] = i;
+            this.ownedTrees[i] = true;
+
+            this.costs[i] = new int[size];
+            Arrays.fill(this.costs[i], UNREACHABLE);
+            this.costs[i][i] = 0;
+        }
+    }
+
+    RoutingTable(RoutingTable table) {
+        this.size = table.size;
+        this.trees = table.trees.clone();
+        this.costs = table.costs.clone();
+        this.ownedTrees = new boolean[this.size];
+
+        Arrays.fill(table.ownedTrees, false);
+    }
+
+    /**
+     * @param from Index of the network the route starts at
+     * @param to Index of the network the route goes to
+     * @return Index of the first network on the route, or NO_ROUTE
+     */
+    public int getNextHop(int from, int to) {
+        return this.trees[to][from];
+    }
+
+    /**
+     * @param from Index of the network the route starts at
+     * @param to Index of the network the route goes to
+     * @return Sum of the fees along the route, or UNREACHABLE
+     */
+    public int getCost(int from, int to) {
+        return this.costs[from][to];
+    }
+
+    /**
+     * @return Fees from the network to every network, must not be modified
+     */
+    int[] getCosts(int from) {
+        return this.costs[from];
+    }
+
+    /**
+     * Only one thread at a time may set the costs of a network
+     */
+    void setCosts(int from, int[] costs) {
+        this.costs[from] = costs;
+    }
+
+    /**
+     * Only one thread at a time may change the tree towards a network
+     */
+    void setNextHop(int from, int to, int nextHop) {
+        if (this.trees[to][from] == nextHop) return;
+
+        if (!this.ownedTrees[to]) {
+            this.trees[to] = this.trees[to].clone();
+            this.ownedTrees[to] = true;
+        }
+
+        this.trees[to][from] = nextHop;
+    }
+}
@@ -20,25 +20,57 @@
 package io.riddles.aion.game.field;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * io.riddles.aion.game.field.ShortestPathHandler - Created on 14-3-18
  *
- * [description]
+ * Dijkstra over the networks, using int node indices and an indexed
+ * binary heap. Ties between nodes at equal distance are broken in the
+ * same order as the original list based implementation (stable sort of
+ * the open set), so paths are identical to what that produced.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
 public class ShortestPathHandler {
 
-    private ArrayList<Node> graph;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
 
-    public ShortestPathHandler(ArrayList<Network> networks) {
-        this.graph = new ArrayList<>();
+    private ArrayList<Network> networks;
+    private NetworkGraph graph;  // neighbors in visiting order
 
-        for (Network network : networks) {
-            this.graph.add(new Node(network, this));
-        }
+    private int[] distances;
+    private int[] predecessors;
+    private boolean[] closed;
+    private int[] visitOrder;
+    private int visitCount;
+    private IndexedPriorityQueue openSet;
+
+    // Nodes updated while visiting a single node
+    private int[] updated;
+    private boolean[] wasOpen;
+
+    public ShortestPathHandler(ArrayList<Network> networks, List<Bridge> bridges) {
+        this(networks, new NetworkGraph(networks.size(), bridges));
+    }
+
+    /**
+     * @param graph Graph of the networks, only read by searches
+     */
+    public ShortestPathHandler(ArrayList<Network> networks, NetworkGraph graph) {
+        int size = networks.size();
+
+        this.networks = networks;
+        this.graph = graph;
+        this.distances = new int[size];
+        this.predecessors = new int[size];
+        this.closed = new boolean[size];
+        this.visitOrder = new int[size];
+        this.openSet = new IndexedPriorityQueue(size);
+        this.updated = new int[size];
+        this.wasOpen = new boolean[size];
     }
 
     /**
@@ -48,76 +80,148 @@ public class ShortestPathHandler {
      * @return List of all networks that need to be traveled to get to goal.
      */
     public ArrayList<Network> getShortestPath(Network start, Network goal) {
+        if (!search(start.getIndex(), goal.getIndex())) {
+            return null; // Path can't be found
+        }
 
-        // Initialize
-        Node startNode = findNode(start);
-        ArrayList<Node> openSet = new ArrayList<>();
-        ArrayList<Node> closedSet = new ArrayList<>();
+        return reconstructShortestPath(goal.getIndex(), start.getIndex());
+    }
 
-        for (Node node : this.graph) {
-            node.initialize();
+    /**
+     * Finds the routes from start to every network in a single search. The
+     * first network of each route is the same as the first network of
+     * getShortestPath for that goal, because the search visits nodes in the
+     * same order whatever the goal is.
+     * @param start Index of the starting point
+     * @param nextHops Filled with the next hop index for every target, start
+     *                 itself for start, or -1 if unreachable
+     * @param distances Filled with the distance to every target, or
+     *                  Integer.MAX_VALUE if unreachable
+     * @param visitRanks Filled with the position of every target in the
+     *                   order the search visited them, or Integer.MAX_VALUE
+     *                   if unreachable
+     */
+    public void findRoutes(int start, int[] nextHops, int[] distances, int[] visitRanks) {
+        search(start, -1);
+
+        System.arraycopy(this.distances, 0, distances, 0, this.networks.size());
+        Arrays.fill(nextHops, -1);
+        Arrays.fill(visitRanks, UNREACHABLE);
+        nextHops[start] = start;
+        visitRanks[start] = 0;
+
+        // Predecessors are always visited before the nodes they lead to
+        for (int i = 1; i < this.visitCount; i++) {
+            int node = this.visitOrder[i];
+            int predecessor = this.predecessors[node];
+
+            nextHops[node] = predecessor == start ? node : nextHops[predecessor];
+            visitRanks[node] = i;
         }
+    }
+
+    /**
+     * Runs the search from start until goal is visited, or until all
+     * reachable nodes are visited if goal is -1.
+     * @return True if goal was visited
+     */
+    private boolean search(int start, int goal) {
+
+        // Initialize
+        Arrays.fill(this.distances, UNREACHABLE);
+        Arrays.fill(this.predecessors, -1);
+        Arrays.fill(this.closed, false);
+        this.visitCount = 0;
+        this.openSet.clear();
 
-        openSet.add(startNode);
-        startNode.setDistance(0);
+        int sequence = 0;
+        this.distances[start] = 0;
+        this.openSet.insert(start, key(0, sequence++));
 
         // Perform algorithm
-        while (openSet.size() > 0) {
+        while (!this.openSet.isEmpty()) {
 
             // Get the node with the lowest distance
-            Collections.sort(openSet);
-            Node current = openSet.remove(0);
+            int current = this.openSet.poll();
 
             // Found the goal node
-            if (current.getNetwork() == goal) {
-                return reconstructShortestPath(current, startNode);
-            }
+            if (current == goal) return true;
 
-            // Add to closed set so we don't visit again
-            closedSet.add(current);
+            // Mark as closed so we don't visit again
+            this.closed[current] = true;
+            this.visitOrder[this.visitCount++] = current;
 
             // Set the distance for current node's neighbors
-            for (Node neighbor : current.getNeighbors()) {
+            int updatedCount = 0;
+            for (int e = this.graph.firstEdge(current); e < this.graph.firstEdge(current + 1); e++) {
+                int neighbor = this.graph.getTarget(e);
+
+                if (this.closed[neighbor]) continue; // Already visited
+
+                int distance = this.distances[current] + this.graph.getFee(e);
 
-                if (closedSet.contains(neighbor)) continue; // Already visited
+                if (distance >= this.distances[neighbor]) continue; // Not a better path
 
-                Network network = current.getNetwork();
-                Bridge bridge = network.getCheapestBridgesTo(neighbor.getNetwork()).get(0);
-                int distance = current.getDistance() + bridge.getFee();
+                this.distances[neighbor] = distance;
+                this.predecessors[neighbor] = current;
+                this.wasOpen[neighbor] = this.openSet.contains(neighbor);
+                this.updated[updatedCount++] = neighbor;
+            }
 
-                if (distance >= neighbor.getDistance()) continue; // Not a better path
+            sortUpdated(updatedCount);
 
-                neighbor.setDistance(distance);
-                neighbor.setPredecessor(current);
+            for (int i = 0; i < updatedCount; i++) {
+                int neighbor = this.updated[i];
+                long key = key(this.distances[neighbor], sequence++);
 
-                if (!openSet.contains(neighbor) && !closedSet.contains(neighbor)) {
-                    openSet.add(neighbor);
+                if (this.wasOpen[neighbor]) {
+                    this.openSet.decreaseKey(neighbor, key);
+                } else {
+                    this.openSet.insert(neighbor, key);
                 }
             }
         }
 
-        // Path can't be found
-        return null;
+        return false;
     }
 
-    public Node findNode(Network network) {
-        return this.graph.stream()
-                .filter(n -> n.getNetwork() == network)
-                .findFirst()
-                .orElse(null);
+    /**
+     * Orders the nodes updated in one step the way a stable sort of the old
+     * open set would: nodes that were already open by their previous
+     * position, followed by newly opened nodes in the order they were found.
+     */
+    private void sortUpdated(int count) {
+        for (int i = 1; i < count; i++) {
+            int node = this.updated[i];
+
+            if (!this.wasOpen[node]) continue;
+
+            long key = this.openSet.getKey(node);
+            int j = i - 1;
+            while (j >= 0 && (!this.wasOpen[this.updated[j]]
+                    || this.openSet.getKey(this.updated[j]) > key)) {
+                this.updated[j + 1] = this.updated[j];
+                j--;
+            }
+            this.updated[j + 1] = node;
+        }
     }
 
-    private ArrayList<Network> reconstructShortestPath(Node current, Node start) {
+    private ArrayList<Network> reconstructShortestPath(int current, int start) {
         ArrayList<Network> shortestPath = new ArrayList<>();
-        shortestPath.add(current.getNetwork());
+        shortestPath.add(this.networks.get(current));
 
-        Node predecessor = current.getPredecessor();
-        while (predecessor != null && predecessor.getNetwork() != start.getNetwork()) {
-            shortestPath.add(predecessor.getNetwork());
-            predecessor = predecessor.getPredecessor();
+        int predecessor = this.predecessors[current];
+        while (predecessor >= 0 && predecessor != start) {
+            shortestPath.add(this.networks.get(predecessor));
+            predecessor = this.predecessors[predecessor];
         }
 
         Collections.reverse(shortestPath);
         return shortestPath;
     }
+
+    private static long key(int distance, int sequence) {
+        return ((long) distance << 32) | (sequence & 0xFFFFFFFFL);
+    }
 }
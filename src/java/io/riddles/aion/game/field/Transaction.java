@@ -20,141 +20,72 @@
 package io.riddles.aion.game.field;
 
 import java.util.ArrayList;
-import java.util.stream.Collectors;
-
-import io.riddles.aion.engine.AionEngine;
 
 /**
  * io.riddles.aion.game.field.Transaction - Created on 14-3-18
  *
- * [description]
+ * View on a row of a TransactionTable.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
 public class Transaction {
 
-    private int id;
-    private Network from;
-    private Network to;
-    private ArrayList<Bridge> currentBridges; // possibly on bridges owned by different players
-    private Network currentNetwork;
-    private Network previousNetwork;
-    private double travelCompletion;
-    private boolean completed;
-
-    public Transaction(int id, Network from, Network to) {
-        this.id = id;
-        this.from = from;
-        this.to = to;
-        this.currentBridges = new ArrayList<>();
-        this.currentNetwork = from;
-        this.previousNetwork = null;
-        this.travelCompletion = 0;
-        this.completed = false;
-    }
-
-    public Transaction(Transaction transaction, AionField field) {
-        this.id = transaction.id;
-        this.from = field.findNetwork(transaction.from.getCode());
-        this.to = field.findNetwork(transaction.to.getCode());
-        this.currentNetwork = transaction.currentNetwork != null
-                ? field.findNetwork(transaction.currentNetwork.getCode())
-                : null;
-        this.currentBridges = transaction.currentBridges.size() == 0
-                ? new ArrayList<>()
-                : transaction.currentBridges.stream()
-                    .map(b -> field.findBridge(b.getId()))
-                    .collect(Collectors.toCollection(ArrayList::new));
-        this.previousNetwork = transaction.previousNetwork != null
-                ? field.findNetwork(transaction.previousNetwork.getCode())
-                : null;
-        this.travelCompletion = transaction.travelCompletion;
-        this.completed = transaction.completed;
-    }
-
-    public boolean moveAlongBridge() {
-        if (this.currentBridges.size() == 0) {
-            return false;
-        }
-
-        int speed = AionEngine.configuration.getInt("transactionSpeed");
-        double step = speed / this.currentBridges.get(0).getDistance();
-        this.travelCompletion = this.travelCompletion + step;
-
-        if (this.travelCompletion < 1) {
-            return false;
-        }
-
-        // Reached other side of the bridge
-        this.currentNetwork = this.currentBridges.get(0).getSides().stream()
-                .filter(s -> s != this.previousNetwork)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Can't find new current network"));
-        this.previousNetwork = null;
-        this.currentBridges = new ArrayList<>();
+    private TransactionTable table;
+    private int row;
 
-        return true;
+    Transaction(TransactionTable table, int row) {
+        this.table = table;
+        this.row = row;
     }
 
     @Override
     public String toString() {
-        String fromTo = String.format("%s>%s", this.from.getCode(), this.to.getCode());
+        String fromTo = String.format("%s>%s", getFrom().getCode(), getTo().getCode());
+        Network currentNetwork = getCurrentNetwork();
 
-        if (this.currentNetwork != null) {
-            return String.format("%s:%s", fromTo, this.currentNetwork.getCode());
+        if (currentNetwork != null) {
+            return String.format("%s:%s", fromTo, currentNetwork.getCode());
         }
 
-        String side1 = this.currentBridges.get(0).getSides().get(0).getCode();
-        String side2 = this.currentBridges.get(0).getSides().get(1).getCode();
+        Bridge bridge = getCurrentBridges().get(0);
+        String side1 = bridge.getSides().get(0).getCode();
+        String side2 = bridge.getSides().get(1).getCode();
         return String.format("%s:%s-%s", fromTo, side1, side2);
     }
 
     public int getId() {
-        return this.id;
+        return this.table.getId(this.row);
     }
 
     public Network getFrom() {
-        return this.from;
+        return this.table.getNetwork(this.table.getFrom(this.row));
     }
 
     public Network getTo() {
-        return this.to;
-    }
-
-    public void setCurrentNetwork(Network network) {
-        this.currentNetwork = network;
-    }
-
-    public void setCurrentBridges(ArrayList<Bridge> bridges) {
-        this.currentBridges = bridges;
-        this.travelCompletion = 0;
-    }
-
-    public void setPreviousNetwork(Network network) {
-        this.previousNetwork = network;
+        return this.table.getNetwork(this.table.getTo(this.row));
     }
 
     public Network getCurrentNetwork() {
-        return this.currentNetwork;
+        return this.table.getNetwork(this.table.getCurrentNetwork(this.row));
     }
 
+    /**
+     * @return Bridges the transaction is on, possibly owned by different
+     * players. Shared, must not be changed.
+     */
     public ArrayList<Bridge> getCurrentBridges() {
-        return this.currentBridges;
+        return this.table.getBridges(this.row);
     }
 
     public double getTravelCompletion() {
-        return this.travelCompletion;
+        return this.table.getTravelCompletion(this.row);
     }
 
     public Network getPreviousNetwork() {
-        return this.previousNetwork;
-    }
-
-    public void setCompleted() {
-        this.completed = true;
+        return this.table.getNetwork(this.table.getPreviousNetwork(this.row));
     }
 
     public boolean isCompleted() {
-        return this.completed;
+        return this.table.isCompleted(this.row);
     }
 }
@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.util.Random;
+
+/**
+ * io.riddles.aion.game.field.TransactionSpawner - Created on 18-10-26
+ *
+ * Draws the from and to networks of new transactions. Without weights
+ * every network is equally likely, drawn with the same calls on the
+ * random as picking two networks from a list and removing the first, so
+ * seeded games give the same transactions as before. With weights the
+ * from network is drawn from an alias table and the to network is drawn
+ * again until it differs. Immutable, shared by all fields of a match.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class TransactionSpawner {
+
+    private int networkCount;
+    private double[] probabilities;  // null for uniform draws
+    private int[] aliases;
+
+    public TransactionSpawner(int networkCount) {
+        this.networkCount = networkCount;
+        this.probabilities = null;
+        this.aliases = null;
+    }
+
+    /**
+     * @param weights Relative popularity of every network, at least two
+     *                have to be above 0
+     */
+    public TransactionSpawner(double[] weights) {
+        this.networkCount = weights.length;
+
+        double total = 0;
+        int positive = 0;
+        for (double weight : weights) {
+            if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Network weights must be finite and not negative");
+            }
+            if (weight > 0) positive++;
+            total += weight;
+        }
+
+        if (positive < 2) {
+            throw new IllegalArgumentException("Need at least two networks with a weight above 0");
+        }
+
+        buildAliasTable(weights, total);
+    }
+
+    /**
+     * Fills from and to with amount distinct pairs of network indices
+     */
+    public void spawn(Random random, int amount, int[] from, int[] to) {
+        for (int i = 0; i < amount; i++) {
+            if (this.probabilities == null) {
+                from[i] = random.nextInt(this.networkCount);
+                to[i] = random.nextInt(this.networkCount - 1);
+                if (to[i] >= from[i]) to[i]++;  // skip the from network
+            } else {
+                from[i] = sample(random);
+                do {
+                    to[i] = sample(random);
+                } while (to[i] == from[i]);
+            }
+        }
+    }
+
+    public boolean isWeighted() {
+        return this.probabilities != null;
+    }
+
+    private int sample(Random random) {
+        int column = random.nextInt(this.networkCount);
+        return random.nextDouble() < this.probabilities[column] ? column : this.aliases[column];
+    }
+
+    /**
+     * Vose's alias method, every column holds its own network with the
+     * given probability and its alias otherwise.
+     */
+    private void buildAliasTable(double[] weights, double total) {
+        int count = this.networkCount;
+        double[] scaled = new double[count];
+        int[] small = new int[count];
+        int[] large = new int[count];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        this.probabilities = new double[count];
+        this.aliases = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            scaled[i] = weights[i] * count / total;
+
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            this.probabilities[less] = scaled[less];
+            this.aliases[less] = more;
+
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Left overs are 1 up to rounding errors
+        while (largeCount > 0) {
+            int index = large[--largeCount];
+            this.probabilities[index] = 1;
+            this.aliases[index] = index;
+        }
+        while (smallCount > 0) {
+            int index = small[--smallCount];
+            this.probabilities[index] = 1;
+            this.aliases[index] = index;
+        }
+    }
+}
@@ -0,0 +1,867 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * io.riddles.aion.game.field.TransactionTable - Created on 18-10-26
+ *
+ * All transactions of a field stored column wise, one row per
+ * transaction. Rows are removed by moving the last row into the hole, so
+ * they are in no particular order; views list them by id, which is the
+ * order they were spawned in. Networks are stored by index, -1 for none.
+ * The bridges a transaction travels on are the shared cheapest bridge
+ * groups from the field, which are never changed in place. Every round
+ * of moving is a tick; a transaction on bridges stores the tick it
+ * reaches the other side at, so moving doesn't have to touch it before.
+ *
+ * The rows crossing bridges are linked in a list per pair of networks, so
+ * the transactions on a removed bridge are found without a scan. Every
+ * row is also in one event list: the rows waiting on a network, or the
+ * slot of a timing wheel for the tick the row arrives at. A round of
+ * moving only has to look at the waiting rows and the wheel's current
+ * slot.
+ *
+ * The columns are stored in fixed size chunks of rows that are shared
+ * with copies of the table. A chunk is copied the first time a table
+ * writes to one of its rows after copying, so a round only pays for the
+ * chunks of the rows it changes. Rows written since the table was copied
+ * are marked dirty, those are the rows that changed in a round.
+ *
+ * The string a row is sent as is kept with the row until the row moves
+ * or its bridges change, so a round only encodes the transactions that
+ * changed. Only the field fills it in, even in shared chunks, because it
+ * follows from the rest of the row, which is the same in every table
+ * sharing the chunk.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class TransactionTable {
+
+    public static final int NONE = -1;
+
+    private static final ArrayList<Bridge> NO_BRIDGES = new ArrayList<>(0);
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private ArrayList<Network> networks;
+    private int size;
+    private Chunk[] chunks;
+    private boolean[] ownedChunks;
+    private long[] dirty;  // bit per row, one long per chunk
+    private int completedCount;
+    private int tick;
+
+    // Heads of the rows crossing bridges, linked per network pair
+    private int[] pairKeys;  // pair key + 1, 0 for an empty slot
+    private int[] pairHeads;
+    private int pairCount;
+
+    // Heads of the rows waiting on a network, and rows on bridges by arrival tick
+    private int waitingHead;
+    private int[] wheelHeads;
+
+    private boolean sharedHeads;  // copy the list heads before writing
+
+    public TransactionTable(ArrayList<Network> networks) {
+        this.networks = networks;
+        this.size = 0;
+        this.chunks = new Chunk[0];
+        this.ownedChunks = new boolean[0];
+        this.dirty = new long[0];
+        this.completedCount = 0;
+        this.tick = 0;
+        this.pairKeys = new int[16];
+        this.pairHeads = new int[16];
+        this.pairCount = 0;
+        this.waitingHead = NONE;
+        this.wheelHeads = new int[64];
+        Arrays.fill(this.wheelHeads, NONE);
+        this.sharedHeads = false;
+    }
+
+    /**
+     * Shares all chunks and list heads, neither table writes to them in
+     * place afterwards.
+     */
+    public TransactionTable(TransactionTable table) {
+        this.networks = table.networks;
+        this.size = table.size;
+        this.chunks = table.chunks.clone();
+        this.ownedChunks = new boolean[this.chunks.length];
+        this.dirty = new long[this.chunks.length];
+        this.completedCount = table.completedCount;
+        this.tick = table.tick;
+        this.pairKeys = table.pairKeys;
+        this.pairHeads = table.pairHeads;
+        this.pairCount = table.pairCount;
+        this.waitingHead = table.waitingHead;
+        this.wheelHeads = table.wheelHeads;
+        this.sharedHeads = true;
+
+        Arrays.fill(table.ownedChunks, false);
+        table.sharedHeads = true;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds a new transaction waiting on its from network
+     * @return The row of the transaction
+     */
+    public int add(int id, int from, int to) {
+        ensureCapacity(this.size + 1);
+        return appendRow(id, from, to);
+    }
+
+    /**
+     * Adds count transactions with consecutive ids starting at firstId
+     */
+    public void addAll(int firstId, int[] from, int[] to, int count) {
+        ensureCapacity(this.size + count);
+
+        for (int i = 0; i < count; i++) {
+            appendRow(firstId + i, from[i], to[i]);
+        }
+    }
+
+    /**
+     * Starts the next round of moving
+     * @return The tick of the new round
+     */
+    public int advance() {
+        return ++this.tick;
+    }
+
+    public int getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Puts the transaction on the given bridges, leaving network previous.
+     * It moves along them from the current tick on.
+     */
+    public void depart(int row, ArrayList<Bridge> bridges, int previous) {
+        ownHeads();
+        unlinkCrossing(row);
+        unlinkEvent(row);
+
+        int crossingRounds = bridges.get(0).getCrossingRounds();
+        if (crossingRounds > this.wheelHeads.length) {
+            growWheel(crossingRounds);
+        }
+
+        Chunk chunk = ownChunk(row);
+        int i = row & CHUNK_MASK;
+        chunk.current[i] = NONE;
+        chunk.previous[i] = previous;
+        chunk.bridges[i] = bridges;
+        chunk.arrivals[i] = this.tick + crossingRounds - 1;
+        chunk.strings[i] = null;
+        linkCrossing(row, pairKey(bridges.get(0)));
+        linkEvent(row);
+        markDirty(row);
+    }
+
+    /**
+     * Puts the transaction on the network on the other side of its bridges
+     */
+    public void arrive(int row) {
+        ownHeads();
+        unlinkEvent(row);
+        markDirty(row);
+
+        Chunk chunk = ownChunk(row);
+        int i = row & CHUNK_MASK;
+        Bridge bridge = chunk.bridges[i].get(0);
+        int side = bridge.getSides().get(0).getIndex();
+        chunk.current[i] = side != chunk.previous[i]
+                ? side
+                : bridge.getSides().get(1).getIndex();
+        chunk.previous[i] = NONE;
+        chunk.bridges[i] = NO_BRIDGES;
+        chunk.strings[i] = null;
+        unlinkCrossing(row);
+        linkEvent(row);
+    }
+
+    /**
+     * @return The rows waiting on a network, in no particular order
+     */
+    public int[] getWaitingRows() {
+        return collectEvents(this.waitingHead, -1);
+    }
+
+    /**
+     * @return The rows that reach the other side of their bridges at the
+     * given tick, in no particular order
+     */
+    public int[] getArrivingRows(int tick) {
+        return collectEvents(this.wheelHeads[tick & (this.wheelHeads.length - 1)], tick);
+    }
+
+    /**
+     * Takes the bridge out of the transaction's bridges, by replacing them
+     * with a copy as they may be shared.
+     */
+    public void removeBridge(int row, Bridge bridge) {
+        ArrayList<Bridge> bridges = new ArrayList<>(getBridges(row));
+        bridges.remove(bridge);
+        Chunk chunk = ownChunk(row);
+        chunk.bridges[row & CHUNK_MASK] = bridges;
+        chunk.strings[row & CHUNK_MASK] = null;
+        markDirty(row);
+    }
+
+    public void setCompleted(int row) {
+        if (!isCompleted(row)) {
+            this.completedCount++;
+        }
+        ownChunk(row).completed[row & CHUNK_MASK] = true;
+        markDirty(row);
+    }
+
+    public boolean hasCompleted() {
+        return this.completedCount > 0;
+    }
+
+    /**
+     * Removes a row by moving the last row into its place
+     */
+    public void remove(int row) {
+        if (row < 0 || row >= this.size) {
+            throw new IndexOutOfBoundsException(String.valueOf(row));
+        }
+
+        ownHeads();
+        unlinkCrossing(row);
+        unlinkEvent(row);
+
+        if (isCompleted(row)) {
+            this.completedCount--;
+        }
+
+        int last = this.size - 1;
+        if (row != last) {
+            copyRow(last, row);
+
+            // Point the crossing list at the row's new position
+            int crossingPair = getChunk(row).crossingPairs[row & CHUNK_MASK];
+            if (crossingPair != NONE) {
+                int next = getChunk(row).nextCrossing[row & CHUNK_MASK];
+                int previous = getChunk(row).previousCrossing[row & CHUNK_MASK];
+
+                if (next != NONE) ownChunk(next).previousCrossing[next & CHUNK_MASK] = row;
+                if (previous != NONE) {
+                    ownChunk(previous).nextCrossing[previous & CHUNK_MASK] = row;
+                } else {
+                    this.pairHeads[findPairSlot(crossingPair)] = row;
+                }
+            }
+
+            // Same for its event list
+            int next = getChunk(row).nextEvent[row & CHUNK_MASK];
+            int previous = getChunk(row).previousEvent[row & CHUNK_MASK];
+
+            if (next != NONE) ownChunk(next).previousEvent[next & CHUNK_MASK] = row;
+            if (previous != NONE) {
+                ownChunk(previous).nextEvent[previous & CHUNK_MASK] = row;
+            } else {
+                setEventHead(row, row);
+            }
+        }
+
+        if (this.ownedChunks[last >>> CHUNK_SHIFT]) {
+            this.chunks[last >>> CHUNK_SHIFT].bridges[last & CHUNK_MASK] = null;
+            this.chunks[last >>> CHUNK_SHIFT].strings[last & CHUNK_MASK] = null;
+        }
+        this.dirty[last >>> CHUNK_SHIFT] &= ~(1L << last);
+        this.size--;
+    }
+
+    /**
+     * @return The rows of the transactions crossing between the two
+     * networks, in no particular order
+     */
+    public int[] getCrossingRows(int side1, int side2) {
+        int slot = findPairSlot(pairKey(side1, side2));
+        int count = 0;
+
+        if (slot < 0) return new int[0];
+
+        for (int row = this.pairHeads[slot]; row != NONE; row = getNextCrossing(row)) {
+            count++;
+        }
+
+        int[] rows = new int[count];
+        int i = 0;
+        for (int row = this.pairHeads[slot]; row != NONE; row = getNextCrossing(row)) {
+            rows[i++] = row;
+        }
+
+        return rows;
+    }
+
+    /**
+     * Visits the rows written since this table was copied, in order
+     */
+    public void forEachDirty(IntConsumer action) {
+        for (int word = 0; word << 6 < this.size; word++) {
+            long bits = this.dirty[word];
+
+            while (bits != 0) {
+                action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    void setTick(int tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Overwrites a row, or appends it if row equals size, with a row of
+     * another table. The row is not marked dirty.
+     */
+    void setRow(int row, TransactionTable source, int sourceRow) {
+        if (row == this.size) {
+            ensureCapacity(this.size + 1);
+            appendRow(source.getId(sourceRow), NONE, NONE);
+            this.dirty[row >>> CHUNK_SHIFT] &= ~(1L << row);
+        }
+
+        ownHeads();
+        unlinkCrossing(row);
+        unlinkEvent(row);
+
+        if (isCompleted(row) != source.isCompleted(sourceRow)) {
+            this.completedCount += source.isCompleted(sourceRow) ? 1 : -1;
+        }
+
+        Chunk sourceChunk = source.getChunk(sourceRow);
+        int j = sourceRow & CHUNK_MASK;
+        Chunk chunk = ownChunk(row);
+        int i = row & CHUNK_MASK;
+        chunk.ids[i] = sourceChunk.ids[j];
+        chunk.from[i] = sourceChunk.from[j];
+        chunk.to[i] = sourceChunk.to[j];
+        chunk.current[i] = sourceChunk.current[j];
+        chunk.previous[i] = sourceChunk.previous[j];
+        chunk.bridges[i] = sourceChunk.bridges[j];
+        chunk.arrivals[i] = sourceChunk.arrivals[j];
+        chunk.completed[i] = sourceChunk.completed[j];
+        chunk.strings[i] = sourceChunk.strings[j];
+
+        if (sourceChunk.crossingPairs[j] != NONE) {
+            linkCrossing(row, sourceChunk.crossingPairs[j]);
+        }
+        linkEvent(row);
+    }
+
+    /**
+     * @return The transaction at row, which reads from this table until
+     * the rows are moved by a removal
+     */
+    public Transaction get(int row) {
+        if (row < 0 || row >= this.size) {
+            throw new IndexOutOfBoundsException(String.valueOf(row));
+        }
+
+        return new Transaction(this, row);
+    }
+
+    /**
+     * @return Read-only list view of the transactions ordered by id, valid
+     * until the rows are moved by a removal
+     */
+    public List<Transaction> asList() {
+        int[] rows = getRowsById();
+
+        return new AbstractList<Transaction>() {
+            @Override
+            public Transaction get(int index) {
+                return TransactionTable.this.get(rows[index]);
+            }
+
+            @Override
+            public int size() {
+                return rows.length;
+            }
+        };
+    }
+
+    /**
+     * @return All rows, ordered by the id of their transaction
+     */
+    public int[] getRowsById() {
+        long[] keys = new long[this.size];
+        boolean sorted = true;
+
+        for (int row = 0; row < this.size; row++) {
+            keys[row] = ((long) getId(row) << 32) | row;
+            sorted &= row == 0 || keys[row - 1] < keys[row];
+        }
+
+        if (!sorted) {
+            Arrays.sort(keys);
+        }
+
+        int[] rows = new int[this.size];
+        for (int i = 0; i < this.size; i++) {
+            rows[i] = (int) keys[i];
+        }
+
+        return rows;
+    }
+
+    public int getId(int row) {
+        return getChunk(row).ids[row & CHUNK_MASK];
+    }
+
+    public int getFrom(int row) {
+        return getChunk(row).from[row & CHUNK_MASK];
+    }
+
+    public int getTo(int row) {
+        return getChunk(row).to[row & CHUNK_MASK];
+    }
+
+    public int getCurrentNetwork(int row) {
+        return getChunk(row).current[row & CHUNK_MASK];
+    }
+
+    public int getPreviousNetwork(int row) {
+        return getChunk(row).previous[row & CHUNK_MASK];
+    }
+
+    public ArrayList<Bridge> getBridges(int row) {
+        return getChunk(row).bridges[row & CHUNK_MASK];
+    }
+
+    public int getArrival(int row) {
+        return getChunk(row).arrivals[row & CHUNK_MASK];
+    }
+
+    /**
+     * @return Part of its bridges the transaction traveled up to the
+     * current tick, 0 if it's not on bridges
+     */
+    public double getTravelCompletion(int row) {
+        ArrayList<Bridge> bridges = getBridges(row);
+
+        if (bridges.isEmpty()) return 0;
+
+        Bridge bridge = bridges.get(0);  // all bridges of a pair have the same length
+        return bridge.getTravelCompletion(
+                bridge.getCrossingRounds() - (getArrival(row) - this.tick)
+        );
+    }
+
+    public boolean isCompleted(int row) {
+        return getChunk(row).completed[row & CHUNK_MASK];
+    }
+
+    /**
+     * @return The string the row was last sent as, or null if it changed
+     * since then
+     */
+    String getString(int row) {
+        return getChunk(row).strings[row & CHUNK_MASK];
+    }
+
+    /**
+     * Keeps the string of the row until it changes. Written in place, also
+     * in a chunk shared with other tables.
+     */
+    void setString(int row, String string) {
+        getChunk(row).strings[row & CHUNK_MASK] = string;
+    }
+
+    Network getNetwork(int index) {
+        return index != NONE ? this.networks.get(index) : null;
+    }
+
+    private int appendRow(int id, int from, int to) {
+        ownHeads();
+
+        int row = this.size++;
+        Chunk chunk = ownChunk(row);
+        int i = row & CHUNK_MASK;
+        chunk.crossingPairs[i] = NONE;
+        chunk.ids[i] = id;
+        chunk.from[i] = from;
+        chunk.to[i] = to;
+        chunk.current[i] = from;
+        chunk.previous[i] = NONE;
+        chunk.bridges[i] = NO_BRIDGES;
+        chunk.arrivals[i] = 0;
+        chunk.completed[i] = false;
+        chunk.strings[i] = null;
+        linkEvent(row);
+        markDirty(row);
+
+        return row;
+    }
+
+    private void copyRow(int sourceRow, int row) {
+        Chunk source = getChunk(sourceRow);
+        int j = sourceRow & CHUNK_MASK;
+        Chunk chunk = ownChunk(row);
+        int i = row & CHUNK_MASK;
+        chunk.ids[i] = source.ids[j];
+        chunk.from[i] = source.from[j];
+        chunk.to[i] = source.to[j];
+        chunk.current[i] = source.current[j];
+        chunk.previous[i] = source.previous[j];
+        chunk.bridges[i] = source.bridges[j];
+        chunk.arrivals[i] = source.arrivals[j];
+        chunk.completed[i] = source.completed[j];
+        chunk.strings[i] = source.strings[j];
+        chunk.crossingPairs[i] = source.crossingPairs[j];
+        chunk.nextCrossing[i] = source.nextCrossing[j];
+        chunk.previousCrossing[i] = source.previousCrossing[j];
+        chunk.nextEvent[i] = source.nextEvent[j];
+        chunk.previousEvent[i] = source.previousEvent[j];
+
+        if ((this.dirty[sourceRow >>> CHUNK_SHIFT] & (1L << sourceRow)) != 0) {
+            this.dirty[row >>> CHUNK_SHIFT] |= 1L << row;
+        } else {
+            this.dirty[row >>> CHUNK_SHIFT] &= ~(1L << row);
+        }
+    }
+
+    private void linkCrossing(int row, int pairKey) {
+        int slot = findPairSlot(pairKey);
+
+        if (slot < 0) {
+            slot = putPair(pairKey);
+        }
+
+        int head = this.pairHeads[slot];
+        Chunk chunk = ownChunk(row);
+        int i = row & CHUNK_MASK;
+        chunk.crossingPairs[i] = pairKey;
+        chunk.previousCrossing[i] = NONE;
+        chunk.nextCrossing[i] = head;
+        if (head != NONE) {
+            ownChunk(head).previousCrossing[head & CHUNK_MASK] = row;
+        }
+        this.pairHeads[slot] = row;
+    }
+
+    private void unlinkCrossing(int row) {
+        Chunk chunk = getChunk(row);
+        int i = row & CHUNK_MASK;
+
+        if (chunk.crossingPairs[i] == NONE) return;
+
+        int next = chunk.nextCrossing[i];
+        int previous = chunk.previousCrossing[i];
+
+        if (next != NONE) ownChunk(next).previousCrossing[next & CHUNK_MASK] = previous;
+        if (previous != NONE) {
+            ownChunk(previous).nextCrossing[previous & CHUNK_MASK] = next;
+        } else {
+            this.pairHeads[findPairSlot(chunk.crossingPairs[i])] = next;
+        }
+
+        ownChunk(row).crossingPairs[i] = NONE;
+    }
+
+    private int getNextCrossing(int row) {
+        return getChunk(row).nextCrossing[row & CHUNK_MASK];
+    }
+
+    /**
+     * Links the row into the waiting list if it's on a network, or else
+     * into the wheel slot of its arrival tick.
+     */
+    private void linkEvent(int row) {
+        int head = getEventHead(row);
+
+        Chunk chunk = ownChunk(row);
+        int i = row & CHUNK_MASK;
+        chunk.previousEvent[i] = NONE;
+        chunk.nextEvent[i] = head;
+        if (head != NONE) {
+            ownChunk(head).previousEvent[head & CHUNK_MASK] = row;
+        }
+        setEventHead(row, row);
+    }
+
+    private void unlinkEvent(int row) {
+        Chunk chunk = getChunk(row);
+        int i = row & CHUNK_MASK;
+        int next = chunk.nextEvent[i];
+        int previous = chunk.previousEvent[i];
+
+        if (next != NONE) ownChunk(next).previousEvent[next & CHUNK_MASK] = previous;
+        if (previous != NONE) {
+            ownChunk(previous).nextEvent[previous & CHUNK_MASK] = next;
+        } else if (getEventHead(row) == row) {
+            setEventHead(row, next);
+        }
+
+        chunk = ownChunk(row);
+        chunk.nextEvent[i] = NONE;
+        chunk.previousEvent[i] = NONE;
+    }
+
+    private int getEventHead(int row) {
+        return getCurrentNetwork(row) != NONE
+                ? this.waitingHead
+                : this.wheelHeads[getArrival(row) & (this.wheelHeads.length - 1)];
+    }
+
+    private void setEventHead(int row, int head) {
+        if (getCurrentNetwork(row) != NONE) {
+            this.waitingHead = head;
+        } else {
+            this.wheelHeads[getArrival(row) & (this.wheelHeads.length - 1)] = head;
+        }
+    }
+
+    /**
+     * @param tick Only collect rows arriving at this tick, -1 for all rows
+     */
+    private int[] collectEvents(int head, int tick) {
+        int count = 0;
+        for (int row = head; row != NONE; row = getNextEvent(row)) {
+            if (tick < 0 || getArrival(row) == tick) count++;
+        }
+
+        int[] rows = new int[count];
+        int i = 0;
+        for (int row = head; row != NONE; row = getNextEvent(row)) {
+            if (tick < 0 || getArrival(row) == tick) rows[i++] = row;
+        }
+
+        return rows;
+    }
+
+    private int getNextEvent(int row) {
+        return getChunk(row).nextEvent[row & CHUNK_MASK];
+    }
+
+    /**
+     * Makes the wheel at least as long as the given number of ticks, so a
+     * slot only holds rows arriving at the same tick.
+     */
+    private void growWheel(int ticks) {
+        int[] oldHeads = this.wheelHeads;
+        int length = oldHeads.length;
+        while (length < ticks) {
+            length *= 2;
+        }
+
+        this.wheelHeads = new int[length];
+        Arrays.fill(this.wheelHeads, NONE);
+
+        for (int head : oldHeads) {
+            int row = head;
+            while (row != NONE) {
+                int next = getNextEvent(row);
+                linkEvent(row);
+                row = next;
+            }
+        }
+    }
+
+    private int pairKey(Bridge bridge) {
+        return pairKey(
+                bridge.getSides().get(0).getIndex(), bridge.getSides().get(1).getIndex()
+        );
+    }
+
+    private int pairKey(int side1, int side2) {
+        return side1 < side2
+                ? side1 * this.networks.size() + side2
+                : side2 * this.networks.size() + side1;
+    }
+
+    private int findPairSlot(int pairKey) {
+        int key = pairKey + 1;
+        int mask = this.pairKeys.length - 1;
+
+        for (int slot = hash(key) & mask; this.pairKeys[slot] != 0; slot = (slot + 1) & mask) {
+            if (this.pairKeys[slot] == key) {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Adds an empty list for the pair. Pairs are never removed, there is
+     * at most one per pair of networks that ever had a bridge.
+     */
+    private int putPair(int pairKey) {
+        if ((this.pairCount + 1) * 2 > this.pairKeys.length) {
+            int[] oldKeys = this.pairKeys;
+            int[] oldHeads = this.pairHeads;
+
+            this.pairKeys = new int[oldKeys.length * 2];
+            this.pairHeads = new int[oldKeys.length * 2];
+            this.pairCount = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    this.pairHeads[putPair(oldKeys[i] - 1)] = oldHeads[i];
+                }
+            }
+        }
+
+        int key = pairKey + 1;
+        int mask = this.pairKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (this.pairKeys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        this.pairKeys[slot] = key;
+        this.pairHeads[slot] = NONE;
+        this.pairCount++;
+
+        return slot;
+    }
+
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void markDirty(int row) {
+        this.dirty[row >>> CHUNK_SHIFT] |= 1L << row;
+    }
+
+    private Chunk getChunk(int row) {
+        return this.chunks[row >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * @return The chunk holding row, which this table can change in place
+     */
+    private Chunk ownChunk(int row) {
+        int chunk = row >>> CHUNK_SHIFT;
+
+        if (!this.ownedChunks[chunk]) {
+            this.chunks[chunk] = new Chunk(this.chunks[chunk]);
+            this.ownedChunks[chunk] = true;
+        }
+
+        return this.chunks[chunk];
+    }
+
+    private void ownHeads() {
+        if (!this.sharedHeads) return;
+
+        this.pairKeys = this.pairKeys.clone();
+        this.pairHeads = this.pairHeads.clone();
+        this.wheelHeads = this.wheelHeads.clone();
+        this.sharedHeads = false;
+    }
+
+    private void ensureCapacity(int capacity) {
+        int chunkCount = (capacity + CHUNK_MASK) >>> CHUNK_SHIFT;
+        int oldCount = this.chunks.length;
+
+        if (chunkCount <= oldCount) return;
+
+        chunkCount = Math.max(chunkCount, oldCount * 2);
+        this.chunks = Arrays.copyOf(this.chunks, chunkCount);
+        this.ownedChunks = Arrays.copyOf(this.ownedChunks, chunkCount);
+        this.dirty = Arrays.copyOf(this.dirty, chunkCount);
+
+        for (int chunk = oldCount; chunk < chunkCount; chunk++) {
+            this.chunks[chunk] = new Chunk();
+            this.ownedChunks[chunk] = true;
+        }
+    }
+
+    /**
+     * Columns of CHUNK_SIZE consecutive rows
+     */
+    private static class Chunk {
+
+        private int[] ids;
+        private int[] from;
+        private int[] to;
+        private int[] current;
+        private int[] previous;
+        private ArrayList<Bridge>[] bridges;
+        private int[] arrivals;  // tick of reaching the other side
+        private boolean[] completed;
+        private String[] strings;  // null until the field encodes the row
+
+        // Rows crossing bridges, linked per network pair
+        private int[] crossingPairs;
+        private int[] nextCrossing;
+        private int[] previousCrossing;
+
+        // Rows waiting on a network, and rows on bridges by arrival tick
+        private int[] nextEvent;
+        private int[] previousEvent;
+
+        @SuppressWarnings("unchecked")
+        private Chunk() {
+            this.ids = new int[CHUNK_SIZE];
+            this.from = new int[CHUNK_SIZE];
+            this.to = new int[CHUNK_SIZE];
+            this.current = new int[CHUNK_SIZE];
+            this.previous = new int[CHUNK_SIZE];
+            this.bridges = (ArrayList<Bridge>[]) new ArrayList[CHUNK_SIZE];
+            this.arrivals = new int[CHUNK_SIZE];
+            this.completed = new boolean[CHUNK_SIZE];
+            this.strings = new String[CHUNK_SIZE];
+            this.crossingPairs = new int[CHUNK_SIZE];
+            this.nextCrossing = new int[CHUNK_SIZE];
+            this.previousCrossing = new int[CHUNK_SIZE];
+            this.nextEvent = new int[CHUNK_SIZE];
+            this.previousEvent = new int[CHUNK_SIZE];
+        }
+
+        private Chunk(Chunk chunk) {
+            this.ids = chunk.ids.clone();
+            this.from = chunk.from.clone();
+            this.to = chunk.to.clone();
+            this.current = chunk.current.clone();
+            this.previous = chunk.previous.clone();
+            this.bridges = chunk.bridges.clone();
+            this.arrivals = chunk.arrivals.clone();
+            this.completed = chunk.completed.clone();
+            this.strings = chunk.strings.clone();
+            this.crossingPairs = chunk.crossingPairs.clone();
+            this.nextCrossing = chunk.nextCrossing.clone();
+            this.previousCrossing = chunk.previousCrossing.clone();
+            this.nextEvent = chunk.nextEvent.clone();
+            this.previousEvent = chunk.previousEvent.clone();
+        }
+    }
+}
@@ -19,7 +19,7 @@
 
 package io.riddles.aion.game.move;
 
-import io.riddles.aion.engine.AionEngine;
+import io.riddles.aion.engine.AionSettings;
 import io.riddles.javainterface.exception.InvalidInputException;
 import io.riddles.javainterface.game.move.AbstractMoveDeserializer;
 
@@ -32,6 +32,12 @@ import io.riddles.javainterface.game.move.AbstractMoveDeserializer;
  */
 public class AionMoveDeserializer extends AbstractMoveDeserializer<AionMove> {
 
+    private AionSettings settings;
+
+    public AionMoveDeserializer(AionSettings settings) {
+        this.settings = settings;
+    }
+
     @Override
     protected AionMove createExceptionMove(InvalidInputException exception) {
         return new AionMove(exception);
@@ -91,7 +97,7 @@ public class AionMoveDeserializer extends AbstractMoveDeserializer<AionMove> {
 
     private int parseFee(String input) throws InvalidInputException {
         int fee;
-        int maxFee = AionEngine.configuration.getInt("maxFee");
+        int maxFee = this.settings.getMaxFee();
 
         try {
             fee = Integer.parseInt(input);
@@ -20,15 +20,26 @@
 package io.riddles.aion.game.processor;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import io.riddles.aion.engine.AionEngine;
-import io.riddles.aion.game.field.AionField;
+import io.riddles.aion.engine.AionContext;
+import io.riddles.aion.engine.AionSettings;
+import io.riddles.aion.game.ResultWriter;
 import io.riddles.aion.game.move.ActionType;
 import io.riddles.aion.game.move.AionMove;
 import io.riddles.aion.game.move.AionMoveDeserializer;
 import io.riddles.aion.game.player.AionPlayer;
 import io.riddles.aion.game.state.AionPlayerState;
 import io.riddles.aion.game.state.AionState;
+import io.riddles.aion.util.ThreadFactories;
+import io.riddles.javainterface.exception.InvalidInputException;
 import io.riddles.javainterface.game.move.AbstractMoveDeserializer;
 import io.riddles.javainterface.game.player.PlayerProvider;
 import io.riddles.javainterface.game.processor.SimpleProcessor;
@@ -42,45 +53,193 @@ import io.riddles.javainterface.game.processor.SimpleProcessor;
  */
 public class AionProcessor extends SimpleProcessor<AionState, AionPlayer> {
 
-    public AionProcessor(PlayerProvider<AionPlayer> playerProvider) {
+    private AionSettings settings;
+    private AionRules rules;
+    private ExecutorService moveExecutor;  // null unless moves are requested in parallel
+    private HashMap<Integer, Future<AionMove>> lateMoves;  // by player id, requests that timed out
+    private DeltaUpdates deltaUpdates;  // null unless players get delta updates
+    private ResultWriter resultWriter;  // null unless states are written while playing
+    private AionState lastState;
+
+    public AionProcessor(PlayerProvider<AionPlayer> playerProvider, AionContext context) {
         super(playerProvider);
+        this.settings = context.getSettings();
+        this.rules = new AionRules(context);
+
+        if (this.settings.isDeltaUpdates()) {
+            this.deltaUpdates = new DeltaUpdates(this.settings.getFullUpdateInterval());
+        }
+
+        if (this.settings.isParallelMoves()) {
+            ThreadFactory threadFactory = ThreadFactories.createVirtualThreadFactory("moves-");
+
+            if (threadFactory == null) {
+                threadFactory = runnable -> {
+                    Thread thread = new Thread(runnable, "moves");
+                    thread.setDaemon(true);
+                    return thread;
+                };
+            }
+
+            this.moveExecutor = Executors.newCachedThreadPool(threadFactory);
+            this.lateMoves = new HashMap<>();
+        }
     }
 
     @Override
     public AionState createNextState(AionState inputState, int roundNumber) {
-        AionState nextState = inputState.createNextState(roundNumber);
-        AionField field = nextState.getField();
+        AionState nextState = this.rules.startRound(inputState, roundNumber);
+
+        RoundUpdate update = new RoundUpdate(nextState, getPlayers(nextState), this.deltaUpdates);
+        AionMove[] moves = this.moveExecutor != null
+                ? requestMovesInParallel(nextState, update)
+                : requestMoves(nextState, update);
+        processMoves(nextState, moves);
 
-        field.spawnTransactions(AionEngine.configuration.getInt("transactionRate"));
+        this.rules.finishRound(nextState);
 
-        sendUpdates(nextState);
-        processMoves(nextState);
+        if (this.resultWriter != null) {
+            this.resultWriter.writeState(nextState);
+            nextState.unlinkPreviousState();
+        }
 
-        field.removeCompleteTransactions();
-        field.moveTransactions(nextState);
+        this.lastState = nextState;
 
         return nextState;
     }
 
-    private void sendUpdates(AionState state) {
+    /**
+     * Writes every state to the writer when its round ends, after which
+     * the states before it are unlinked and only the last state is kept.
+     * The initial state is written by the engine.
+     */
+    public void setResultWriter(ResultWriter resultWriter) {
+        this.resultWriter = resultWriter;
+    }
+
+    /**
+     * @return The writer the states are written to while playing, or null
+     */
+    public ResultWriter getResultWriter() {
+        return this.resultWriter;
+    }
+
+    /**
+     * @return The state of the last round played, or null before the first
+     * round. Still there when the earlier states are unlinked.
+     */
+    public AionState getLastState() {
+        return this.lastState;
+    }
+
+    /**
+     * Sends the updates to all players and then asks them for their moves
+     * one after another.
+     * @return The moves in the order of the player states
+     */
+    private AionMove[] requestMoves(AionState state, RoundUpdate update) {
+        ArrayList<AionPlayerState> playerStates = state.getPlayerStates();
+        AionMove[] moves = new AionMove[playerStates.size()];
+
         for (AionPlayer player : this.playerProvider.getPlayers()) {
-            player.sendUpdate("round", state.getRoundNumber());
-            player.sendUpdate("bridges", state.getField().bridgesToString());
-            player.sendUpdate("transactions", state.getField().transactionsToString());
+            update.sendTo(player);
+        }
+
+        for (int i = 0; i < moves.length; i++) {
+            AionPlayer player = getPlayer(playerStates.get(i).getPlayerId());
+            moves[i] = (AionMove) getPlayerMove(player, ActionType.MOVE);
+        }
+
+        return moves;
+    }
+
+    /**
+     * Sends the updates to every player and asks for its move on a thread
+     * per player, so a round takes as long as the slowest bot instead of
+     * all bots together. A player that doesn't answer before the move
+     * deadline makes an invalid move. Its request isn't cancelled, so the
+     * late answer is still read by that request and thrown away, before
+     * the player gets the updates of the next round.
+     * @return The moves in the order of the player states
+     */
+    private AionMove[] requestMovesInParallel(AionState state, RoundUpdate update) {
+        ArrayList<AionPlayerState> playerStates = state.getPlayerStates();
+        ArrayList<Future<AionMove>> futures = new ArrayList<>();
+        AionMove[] moves = new AionMove[playerStates.size()];
+
+        for (AionPlayerState playerState : playerStates) {
+            AionPlayer player = getPlayer(playerState.getPlayerId());
+            Future<AionMove> lateMove = this.lateMoves.remove(player.getId());
 
-            for (AionPlayerState playerState : state.getPlayerStates()) {
-                AionPlayer otherPlayer = getPlayer(playerState.getPlayerId());
+            futures.add(this.moveExecutor.submit(() -> {
+                if (lateMove != null) {
+                    awaitLateMove(lateMove);
+                }
 
-                player.sendUpdate("coins", otherPlayer, playerState.getAvailableCoins());
-                player.sendUpdate("value", otherPlayer, playerState.getTotalCoins());
+                update.sendTo(player);
+                return (AionMove) getPlayerMove(player, ActionType.MOVE);
+            }));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.settings.getMoveDeadline());
+
+        for (int i = 0; i < moves.length; i++) {
+            Future<AionMove> future = futures.get(i);
+
+            try {
+                if (this.settings.getMoveDeadline() > 0) {
+                    long remaining = Math.max(0, deadline - System.nanoTime());
+                    moves[i] = future.get(remaining, TimeUnit.NANOSECONDS);
+                } else {
+                    moves[i] = future.get();
+                }
+            } catch (TimeoutException ex) {
+                this.lateMoves.put(playerStates.get(i).getPlayerId(), future);
+                moves[i] = new AionMove(new InvalidInputException("Move took too long"));
+            } catch (ExecutionException ex) {
+                moves[i] = new AionMove(new InvalidInputException("Failed to get move"));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                moves[i] = new AionMove(new InvalidInputException("Failed to get move"));
             }
         }
+
+        return moves;
+    }
+
+    /**
+     * Waits for the answer to a request that timed out in an earlier round
+     */
+    private void awaitLateMove(Future<AionMove> lateMove) throws InterruptedException {
+        try {
+            lateMove.get();
+        } catch (ExecutionException ex) {
+            // The move was already counted as invalid
+        }
+    }
+
+    private AionPlayer[] getPlayers(AionState state) {
+        ArrayList<AionPlayerState> playerStates = state.getPlayerStates();
+        AionPlayer[] players = new AionPlayer[playerStates.size()];
+
+        for (int i = 0; i < players.length; i++) {
+            players[i] = getPlayer(playerStates.get(i).getPlayerId());
+        }
+
+        return players;
     }
 
-    private void processMoves(AionState state) {
-        for (AionPlayerState playerState : state.getPlayerStates()) {
+    /**
+     * Applies the moves in the order of the player states, however fast
+     * they came in.
+     */
+    private void processMoves(AionState state, AionMove[] moves) {
+        ArrayList<AionPlayerState> playerStates = state.getPlayerStates();
+
+        for (int i = 0; i < moves.length; i++) {
+            AionPlayerState playerState = playerStates.get(i);
             AionPlayer player = getPlayer(playerState.getPlayerId());
-            AionMove move = (AionMove) getPlayerMove(player, ActionType.MOVE);
+            AionMove move = moves[i];
 
             state.getField().processMove(move, playerState);
 
@@ -92,41 +251,19 @@ public class AionProcessor extends SimpleProcessor<AionState, AionPlayer> {
 
     @Override
     public boolean hasGameEnded(AionState state) {
-        int maxRounds = AionEngine.configuration.getInt("maxRounds");
-        ArrayList<AionPlayerState> winners = state.getWinningPlayers();
+        boolean hasGameEnded = this.rules.hasGameEnded(state);
+
+        if (hasGameEnded && this.moveExecutor != null) {
+            // Also stops waiting for bots that never answered
+            this.moveExecutor.shutdownNow();
+        }
 
-        return state.getRoundNumber() >= maxRounds || winners.size() >= 1;
+        return hasGameEnded;
     }
 
     @Override
     public Integer getWinnerId(AionState state) {
-        ArrayList<AionPlayerState> winners = state.getWinningPlayers();
-
-        // Winner by getting the amount above treshold
-        if (winners.size() > 1) {
-            return null;
-        } else if (winners.size() == 1) {
-            return winners.get(0).getPlayerId();
-        }
-
-        // Winner by most amount, but below treshold
-        int maxCoins = -1;
-        for (AionPlayerState playerState : state.getPlayerStates()) {
-            if (playerState.getTotalCoins() > maxCoins) {
-                maxCoins = playerState.getTotalCoins();
-                winners.clear();
-                winners.add(playerState);
-            } else if (playerState.getTotalCoins() == maxCoins) {
-                winners.add(playerState);
-            }
-        }
-
-        if (winners.size() == 1) {
-            return winners.get(0).getPlayerId();
-        }
-
-        // Draw if players have equal amounts
-        return null;
+        return this.rules.getWinnerId(state);
     }
 
     @Override
@@ -136,6 +273,6 @@ public class AionProcessor extends SimpleProcessor<AionState, AionPlayer> {
 
     @Override
     public AbstractMoveDeserializer createMoveDeserializer() {
-        return new AionMoveDeserializer();
+        return new AionMoveDeserializer(this.settings);
     }
 }
@@ -0,0 +1,111 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.riddles.aion.engine.AionContext;
+import io.riddles.aion.engine.AionSettings;
+import io.riddles.aion.game.field.AionField;
+import io.riddles.aion.game.state.AionPlayerState;
+import io.riddles.aion.game.state.AionState;
+import io.riddles.aion.game.state.CoinLedger;
+
+/**
+ * io.riddles.aion.game.processor.AionRules - Created on 18-10-26
+ *
+ * The rules of a round without any player communication, shared by the
+ * processor of the engine and the batch runner. A round is started, the
+ * players' moves are processed on the field and then the round is
+ * finished. Everything else the rules need comes from the context of the
+ * match.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class AionRules {
+
+    private AionContext context;
+    private AionSettings settings;
+
+    public AionRules(AionContext context) {
+        this.context = context;
+        this.settings = context.getSettings();
+    }
+
+    public AionState createInitialState(List<Integer> playerIds) {
+        AionField field = new AionField(this.context);
+        field.spawnTransactions(this.settings.getInitialTransactions());
+
+        int initialCoins = this.settings.getInitialCoins();
+        ArrayList<AionPlayerState> playerStates = new ArrayList<>();
+        for (int playerId : playerIds) {
+            playerStates.add(new AionPlayerState(playerId, initialCoins));
+        }
+
+        return new AionState(playerStates, field);
+    }
+
+    /**
+     * @return The state for the round with its new transactions spawned,
+     * ready for the moves of the players
+     */
+    public AionState startRound(AionState inputState, int roundNumber) {
+        AionState nextState = inputState.createNextState(roundNumber);
+        nextState.getField().spawnTransactions(this.settings.getTransactionRate());
+
+        return nextState;
+    }
+
+    /**
+     * Moves the transactions after all moves of the round are processed
+     */
+    public void finishRound(AionState state) {
+        AionField field = state.getField();
+
+        field.removeCompleteTransactions();
+        field.moveTransactions(state);
+    }
+
+    public boolean hasGameEnded(AionState state) {
+        int maxRounds = this.settings.getMaxRounds();
+
+        return state.getRoundNumber() >= maxRounds || state.getLedger().getWinnerCount() >= 1;
+    }
+
+    public Integer getWinnerId(AionState state) {
+        CoinLedger ledger = state.getLedger();
+
+        // Winner by getting the amount above treshold
+        if (ledger.getWinnerCount() > 1) {
+            return null;
+        } else if (ledger.getWinnerCount() == 1) {
+            return ledger.getWinnerId();
+        }
+
+        // Winner by most amount, but below treshold
+        if (ledger.getLeaderId() != CoinLedger.NO_PLAYER) {
+            return ledger.getLeaderId();
+        }
+
+        // Draw if players have equal amounts
+        return null;
+    }
+}
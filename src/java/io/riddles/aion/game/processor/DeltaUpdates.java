@@ -0,0 +1,186 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.processor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+import io.riddles.aion.game.field.AionField;
+import io.riddles.aion.game.field.Bridge;
+import io.riddles.aion.game.field.TransactionTable;
+
+/**
+ * io.riddles.aion.game.processor.DeltaUpdates - Created on 18-10-26
+ *
+ * Works out the updates for players that only get what changed on the
+ * field since the previous round. Remembers the bridges and where every
+ * transaction was when they were last sent, so every round both lists
+ * only have to be walked side by side in order of id. On the first round,
+ * and then every full update interval, everything is sent again with
+ * the ids of the transactions, so a bot can rebuild its copy of the field.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class DeltaUpdates {
+
+    private int fullUpdateInterval;
+    private int roundsSent;
+    private ArrayList<Bridge> bridges;  // as last sent
+    private int[] ids;  // of the transactions last sent, ascending
+    private int[] locations;  // network index, or minus bridge id minus one
+
+    public DeltaUpdates(int fullUpdateInterval) {
+        this.fullUpdateInterval = fullUpdateInterval;
+        this.roundsSent = 0;
+        this.bridges = new ArrayList<>();
+        this.ids = new int[0];
+        this.locations = new int[0];
+    }
+
+    /**
+     * Only the keys that have something to send this round are added.
+     * @return The update values by their key, in the order they are sent
+     */
+    public LinkedHashMap<String, String> createUpdates(AionField field) {
+        LinkedHashMap<String, String> updates = new LinkedHashMap<>();
+        boolean fullUpdate = this.roundsSent % this.fullUpdateInterval == 0;
+
+        if (fullUpdate) {
+            updates.put("bridges", field.bridgesToString());
+        } else {
+            addBridgeUpdates(updates, field.getBridges());
+        }
+
+        addTransactionUpdates(updates, field, fullUpdate);
+
+        this.bridges = new ArrayList<>(field.getBridges());
+        this.roundsSent++;
+
+        return updates;
+    }
+
+    private void addBridgeUpdates(LinkedHashMap<String, String> updates, ArrayList<Bridge> bridges) {
+        HashSet<Integer> previousIds = new HashSet<>();
+        HashSet<Integer> currentIds = new HashSet<>();
+        StringBuilder built = new StringBuilder();
+        StringBuilder removed = new StringBuilder();
+
+        for (Bridge bridge : this.bridges) {
+            previousIds.add(bridge.getId());
+        }
+
+        for (Bridge bridge : bridges) {
+            currentIds.add(bridge.getId());
+
+            if (!previousIds.contains(bridge.getId())) {
+                appendEntry(built).append(bridge.toString());
+            }
+        }
+
+        for (Bridge bridge : this.bridges) {
+            if (!currentIds.contains(bridge.getId())) {
+                appendEntry(removed).append(bridge.toString());
+            }
+        }
+
+        addUpdate(updates, "bridges_built", built);
+        addUpdate(updates, "bridges_removed", removed);
+    }
+
+    private void addTransactionUpdates(LinkedHashMap<String, String> updates, AionField field, boolean fullUpdate) {
+        TransactionTable transactions = field.getTransactionTable();
+        int[] rows = transactions.getRowsById();
+        int[] ids = new int[rows.length];
+        int[] locations = new int[rows.length];
+        StringBuilder spawned = new StringBuilder();
+        StringBuilder departed = new StringBuilder();
+        StringBuilder arrived = new StringBuilder();
+        StringBuilder completed = new StringBuilder();
+        int previous = 0;
+
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            int id = transactions.getId(row);
+
+            ids[i] = id;
+            locations[i] = getLocation(transactions, row);
+
+            while (previous < this.ids.length && this.ids[previous] < id) {
+                appendEntry(completed).append(this.ids[previous++]);
+            }
+
+            boolean known = previous < this.ids.length && this.ids[previous] == id;
+
+            if (fullUpdate || !known) {
+                appendEntry(spawned).append(id).append(':');
+                field.appendTransactionString(spawned, row);
+            } else if (this.locations[previous] != locations[i]) {
+                StringBuilder moved = locations[i] >= 0 ? arrived : departed;
+                appendEntry(moved).append(id).append(':');
+                field.appendLocationString(moved, row);
+            }
+
+            if (known) {
+                previous++;
+            }
+        }
+
+        while (previous < this.ids.length) {
+            appendEntry(completed).append(this.ids[previous++]);
+        }
+
+        if (fullUpdate) {
+            updates.put("transactions_sync", spawned.length() > 0 ? spawned.toString() : "null");
+        } else {
+            addUpdate(updates, "transactions_spawned", spawned);
+            addUpdate(updates, "transactions_departed", departed);
+            addUpdate(updates, "transactions_arrived", arrived);
+            addUpdate(updates, "transactions_completed", completed);
+        }
+
+        this.ids = ids;
+        this.locations = locations;
+    }
+
+    private int getLocation(TransactionTable transactions, int row) {
+        int currentNetwork = transactions.getCurrentNetwork(row);
+
+        if (currentNetwork != TransactionTable.NONE) {
+            return currentNetwork;
+        }
+
+        return -transactions.getBridges(row).get(0).getId() - 1;
+    }
+
+    private StringBuilder appendEntry(StringBuilder builder) {
+        if (builder.length() > 0) {
+            builder.append(';');
+        }
+
+        return builder;
+    }
+
+    private void addUpdate(LinkedHashMap<String, String> updates, String key, StringBuilder value) {
+        if (value.length() > 0) {
+            updates.put(key, value.toString());
+        }
+    }
+}
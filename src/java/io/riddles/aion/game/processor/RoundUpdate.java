@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import io.riddles.aion.game.field.AionField;
+import io.riddles.aion.game.player.AionPlayer;
+import io.riddles.aion.game.state.AionPlayerState;
+import io.riddles.aion.game.state.AionState;
+
+/**
+ * io.riddles.aion.game.processor.RoundUpdate - Created on 18-10-26
+ *
+ * The updates all players get at the start of a round. Everything is
+ * read from the state once, then the same strings and values are sent to
+ * every player. Players either get all bridges and transactions, or only
+ * what changed since the previous round when delta updates are used.
+ * Doesn't change after it's made, so it can be sent to players from
+ * different threads.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class RoundUpdate {
+
+    private final int roundNumber;
+    private final String[] updateKeys;
+    private final String[] updateValues;
+    private final AionPlayer[] players;  // in the order of the player states
+    private final int[] availableCoins;
+    private final int[] totalCoins;
+
+    /**
+     * @param players The players of the player states, in the same order
+     * @param deltaUpdates What was sent the previous round, null to send
+     * the whole field
+     */
+    public RoundUpdate(AionState state, AionPlayer[] players, DeltaUpdates deltaUpdates) {
+        AionField field = state.getField();
+        ArrayList<AionPlayerState> playerStates = state.getPlayerStates();
+
+        this.roundNumber = state.getRoundNumber();
+
+        LinkedHashMap<String, String> updates;
+        if (deltaUpdates != null) {
+            updates = deltaUpdates.createUpdates(field);
+        } else {
+            updates = new LinkedHashMap<>();
+            updates.put("bridges", field.bridgesToString());
+            updates.put("transactions", field.transactionsToString());
+        }
+
+        this.updateKeys = updates.keySet().toArray(new String[0]);
+        this.updateValues = updates.values().toArray(new String[0]);
+
+        this.players = players;
+        this.availableCoins = new int[playerStates.size()];
+        this.totalCoins = new int[playerStates.size()];
+
+        for (int i = 0; i < this.players.length; i++) {
+            AionPlayerState playerState = playerStates.get(i);
+
+            this.availableCoins[i] = playerState.getAvailableCoins();
+            this.totalCoins[i] = playerState.getTotalCoins();
+        }
+    }
+
+    public void sendTo(AionPlayer player) {
+        player.sendUpdate("round", this.roundNumber);
+
+        for (int i = 0; i < this.updateKeys.length; i++) {
+            player.sendUpdate(this.updateKeys[i], this.updateValues[i]);
+        }
+
+        for (int i = 0; i < this.players.length; i++) {
+            player.sendUpdate("coins", this.players[i], this.availableCoins[i]);
+            player.sendUpdate("value", this.players[i], this.totalCoins[i]);
+        }
+    }
+}
@@ -25,25 +25,26 @@ import io.riddles.javainterface.game.state.AbstractPlayerState;
 /**
  * io.riddles.aion.game.state.AionPlayerState - Created on 7-3-18
  *
- * [description]
+ * The coins of a player are kept in the coin ledger of its state, the
+ * player state only holds them until it's added to a state.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
 public class AionPlayerState extends AbstractPlayerState<AionMove> {
 
-    private int totalCoins;  // Total coin value for player
-    private int availableCoins;  // Coins available for bridge staking
+    private int initialCoins;
+    private CoinLedger ledger;  // null until added to a state
 
     public AionPlayerState(int playerId, int initialCoins) {
         super(playerId);
-        this.totalCoins = initialCoins;
-        this.availableCoins = initialCoins;
+        this.initialCoins = initialCoins;
+        this.ledger = null;
     }
 
     public AionPlayerState(AionPlayerState playerState) {
         super(playerState.playerId);
-        this.totalCoins = playerState.totalCoins;
-        this.availableCoins = playerState.availableCoins;
+        this.initialCoins = playerState.initialCoins;
+        this.ledger = playerState.ledger;  // replaced by the state it's cloned for
     }
 
     @Override
@@ -51,24 +52,29 @@ public class AionPlayerState extends AbstractPlayerState<AionMove> {
         return new AionPlayerState(this);
     }
 
+    void setLedger(CoinLedger ledger) {
+        this.ledger = ledger;
+    }
+
     public void payStake(int stake) {
-        this.availableCoins -= stake;
+        this.ledger.payStake(this.playerId, stake);
     }
 
     public void receiveStake(int stake) {
-        this.availableCoins += stake;
+        this.ledger.receiveStake(this.playerId, stake);
     }
 
     public void receiveFee(int fee) {
-        this.totalCoins += fee;
-        this.availableCoins += fee;
+        this.ledger.receiveFee(this.playerId, fee);
     }
 
+    // Total coin value for player
     public int getTotalCoins() {
-        return this.totalCoins;
+        return this.ledger != null ? this.ledger.getTotalCoins(this.playerId) : this.initialCoins;
     }
 
+    // Coins available for bridge staking
     public int getAvailableCoins() {
-        return this.availableCoins;
+        return this.ledger != null ? this.ledger.getAvailableCoins(this.playerId) : this.initialCoins;
     }
 }
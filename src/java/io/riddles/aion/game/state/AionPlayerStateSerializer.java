@@ -20,6 +20,8 @@
 package io.riddles.aion.game.state;
 
 import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.json.JSONWriter;
 
 import io.riddles.javainterface.serialize.AbstractSerializer;
 
@@ -34,12 +36,20 @@ public class AionPlayerStateSerializer extends AbstractSerializer<AionPlayerStat
 
     @Override
     protected JSONObject visitObject(AionPlayerState playerState) {
-        JSONObject playerStateObject = new JSONObject();
+        JSONStringer stringer = new JSONStringer();
+        writePlayerState(playerState, stringer);
 
-        playerStateObject.put("id", playerState.getPlayerId());
-        playerStateObject.put("coins", playerState.getAvailableCoins());
-        playerStateObject.put("value", playerState.getTotalCoins());
+        return new JSONObject(stringer.toString());
+    }
 
-        return playerStateObject;
+    /**
+     * Writes the player state straight to the writer
+     */
+    void writePlayerState(AionPlayerState playerState, JSONWriter writer) {
+        writer.object();
+        writer.key("id").value(playerState.getPlayerId());
+        writer.key("coins").value(playerState.getAvailableCoins());
+        writer.key("value").value(playerState.getTotalCoins());
+        writer.endObject();
     }
 }
@@ -19,47 +19,126 @@
 
 package io.riddles.aion.game.state;
 
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
 
-import io.riddles.aion.engine.AionEngine;
+import io.riddles.aion.engine.AionContext;
+import io.riddles.aion.engine.AionSettings;
 import io.riddles.aion.game.field.AionField;
+import io.riddles.aion.game.field.FieldDelta;
 import io.riddles.javainterface.game.state.AbstractState;
 
 /**
  * io.riddles.aion.game.state.AionState - Created on 7-3-18
  *
- * [description]
+ * With a history keyframe interval set, a state keeps its field only on
+ * keyframe rounds once the next state is created. Other rounds keep the
+ * changes to their field and rebuild it from the previous round when it
+ * is asked for, which is what the serializer does at the end of the game.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
 public class AionState extends AbstractState<AionPlayerState> {
 
-    private AionField field;
+    private AionField field;  // null if only the delta is kept
+    private FieldDelta delta;
+    private SoftReference<AionField> rebuiltField;
+    private AionContext context;
+    private CoinLedger ledger;
 
     // For initial state only
     public AionState(ArrayList<AionPlayerState> playerStates, AionField field) {
         super(null, playerStates, 0);
         this.field = field;
+        this.context = field.getContext();
+        this.ledger = new CoinLedger(playerStates, getSettings().getWinAmount());
+        bindLedger();
     }
 
     public AionState(AionState previousState, ArrayList<AionPlayerState> playerStates, int roundNumber) {
         super(previousState, playerStates, roundNumber);
         this.field = new AionField(previousState.field);
+        this.context = previousState.context;
+        this.ledger = new CoinLedger(previousState.ledger);
+        bindLedger();
     }
 
     @Override
     public AionState createNextState(int roundNumber) {
-        return new AionState(this, clonePlayerStates(), roundNumber);
+        AionState nextState = new AionState(this, clonePlayerStates(), roundNumber);
+        compact(getSettings().getHistoryKeyframeInterval());
+
+        return nextState;
+    }
+
+    public AionContext getContext() {
+        return this.context;
+    }
+
+    public AionSettings getSettings() {
+        return this.context.getSettings();
     }
 
-    public ArrayList<AionPlayerState> getWinningPlayers() {
-        return this.playerStates.stream()
-                .filter(p -> p.getTotalCoins() >= AionEngine.configuration.getInt("winAmount"))
-                .collect(Collectors.toCollection(ArrayList::new));
+    public CoinLedger getLedger() {
+        return this.ledger;
     }
 
+    /**
+     * Rebuilds the field from the nearest earlier keyframe if this state
+     * only kept its delta. The rebuilt field is kept until memory runs low,
+     * so walking the states in order rebuilds every round once.
+     */
     public AionField getField() {
-        return this.field;
+        if (this.field != null) {
+            return this.field;
+        }
+
+        AionField field = this.rebuiltField != null ? this.rebuiltField.get() : null;
+
+        if (field == null) {
+            field = new AionField(((AionState) this.previousState).getField());
+            field.applyDelta(this.delta);
+            this.rebuiltField = new SoftReference<>(field);
+        }
+
+        return field;
+    }
+
+    /**
+     * Unlinks this state from the states before it, so they can be
+     * collected once they are written. This state keeps its own field,
+     * because it can't be rebuilt without the previous state.
+     */
+    public void unlinkPreviousState() {
+        if (this.previousState == null) return;
+
+        this.field = getField();
+        this.delta = null;
+        this.rebuiltField = null;
+        ((AionState) this.previousState).nextState = null;
+        this.previousState = null;
+    }
+
+    private void bindLedger() {
+        for (AionPlayerState playerState : this.playerStates) {
+            playerState.setLedger(this.ledger);
+        }
+    }
+
+    /**
+     * Drops the field of this state unless it's a keyframe round. Only
+     * done after the next state copied the field, so the delta is sealed.
+     * @param keyframeInterval Rounds between kept fields, 0 keeps all fields
+     */
+    private void compact(int keyframeInterval) {
+        FieldDelta delta = this.field.getDelta();
+
+        if (keyframeInterval <= 0 || delta == null || !delta.isSealed()
+                || this.previousState == null || this.roundNumber % keyframeInterval == 0) {
+            return;
+        }
+
+        this.delta = delta;
+        this.field = null;
     }
 }
@@ -21,10 +21,13 @@ package io.riddles.aion.game.state;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.json.JSONWriter;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import io.riddles.aion.game.field.Bridge;
@@ -41,39 +44,39 @@ import io.riddles.javainterface.serialize.AbstractSerializer;
  */
 public class AionStateSerializer extends AbstractSerializer<AionState> {
 
+    /**
+     * Built from what writeState writes, so both give the same object
+     */
     @Override
     public JSONObject visitObject(AionState state) {
-        AionPlayerStateSerializer playerStateSerializer = new AionPlayerStateSerializer();
-        JSONObject stateObject = new JSONObject();
-
-        JSONArray players = new JSONArray();
-        for (AionPlayerState playerState : state.getPlayerStates()) {
-            players.put(playerStateSerializer.traverseToJson(playerState));
-        }
-
-        stateObject.put("round", state.getRoundNumber());
-        stateObject.put("players", players);
-        stateObject.put("bridges", visitBridges(state.getField().getBridges()));
-        stateObject.put("transactions", visitTransactions(state.getField().getTransactions()));
+        JSONStringer stringer = new JSONStringer();
+        writeState(state, stringer);
 
-        return stateObject;
+        return new JSONObject(stringer.toString());
     }
 
-    private JSONArray visitBridges(ArrayList<Bridge> bridges) {
-        JSONArray bridgeArray = new JSONArray();
-
-        for (Bridge bridge : bridges) {
-            JSONObject bridgeObject = new JSONObject();
+    /**
+     * Writes the state straight to the writer, without building it in
+     * memory first
+     */
+    public void writeState(AionState state, JSONWriter writer) {
+        AionPlayerStateSerializer playerStateSerializer = new AionPlayerStateSerializer();
 
-            bridgeObject.put("id", bridge.getId());
-            bridgeObject.put("player", bridge.getPlayerId());
-            bridgeObject.put("fee", bridge.getFee());
-            bridgeObject.put("sides", visitSides(bridge.getSides()));
+        writer.object();
+        writer.key("round").value(state.getRoundNumber());
 
-            bridgeArray.put(bridgeObject);
+        writer.key("players").array();
+        for (AionPlayerState playerState : state.getPlayerStates()) {
+            playerStateSerializer.writePlayerState(playerState, writer);
         }
+        writer.endArray();
 
-        return bridgeArray;
+        writer.key("bridges");
+        writeBridges(state.getField().getBridges(), writer);
+        writer.key("transactions");
+        writeTransactions(state.getField().getTransactions(), writer);
+
+        writer.endObject();
     }
 
     private JSONArray visitSides(ArrayList<Network> sides) {
@@ -91,29 +94,43 @@ public class AionStateSerializer extends AbstractSerializer<AionState> {
         return sidesArray;
     }
 
-    private JSONArray visitTransactions(ArrayList<Transaction> transactions) {
-        JSONArray transactionArray = new JSONArray();
+    private void writeBridges(ArrayList<Bridge> bridges, JSONWriter writer) {
+        writer.array();
 
-        for (Transaction transaction : transactions) {
-            JSONObject transactionObject = new JSONObject();
+        for (Bridge bridge : bridges) {
+            writer.object();
+            writer.key("id").value(bridge.getId());
+            writer.key("player").value(bridge.getPlayerId());
+            writer.key("fee").value(bridge.getFee());
+            writer.key("sides").value(visitSides(bridge.getSides()));
+            writer.endObject();
+        }
 
+        writer.endArray();
+    }
+
+    private void writeTransactions(List<Transaction> transactions, JSONWriter writer) {
+        writer.array();
+
+        for (Transaction transaction : transactions) {
             String current = transaction.getCurrentNetwork() != null
                     ? transaction.getCurrentNetwork().getCode()
                     : transaction.getCurrentBridges().get(0).toSimpleString();
 
-            transactionObject.put("id", transaction.getId());
-            transactionObject.put("from", transaction.getFrom().getCode());
-            transactionObject.put("to", transaction.getTo().getCode());
-            transactionObject.put("current", current);
+            writer.object();
+            writer.key("id").value(transaction.getId());
+            writer.key("from").value(transaction.getFrom().getCode());
+            writer.key("to").value(transaction.getTo().getCode());
+            writer.key("current").value(current);
 
             if (!transaction.getCurrentBridges().isEmpty()) {
-                transactionObject.put("travel", transaction.getTravelCompletion());
-                transactionObject.put("previous", transaction.getPreviousNetwork().getCode());
+                writer.key("travel").value(transaction.getTravelCompletion());
+                writer.key("previous").value(transaction.getPreviousNetwork().getCode());
             }
 
-            transactionArray.put(transactionObject);
+            writer.endObject();
         }
 
-        return transactionArray;
+        writer.endArray();
     }
 }
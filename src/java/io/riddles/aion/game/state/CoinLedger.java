@@ -0,0 +1,148 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * io.riddles.aion.game.state.CoinLedger - Created on 18-10-26
+ *
+ * The coins of all players in a state, in arrays indexed by player id.
+ * Total coins only go up, so the leader and the players past the win
+ * amount are kept up to date on every fee and the end of game checks
+ * don't have to look at the players.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class CoinLedger {
+
+    public static final int NO_PLAYER = -1;
+
+    private int[] totalCoins;
+    private int[] availableCoins;
+    private int winAmount;
+    private int leaderId;
+    private int leaderCoins;
+    private int leaderCount;  // players having the most coins
+    private int winnerId;
+    private int winnerCount;  // players at or above the win amount
+
+    public CoinLedger(ArrayList<AionPlayerState> playerStates, int winAmount) {
+        int size = 0;
+        for (AionPlayerState playerState : playerStates) {
+            size = Math.max(size, playerState.getPlayerId() + 1);
+        }
+
+        this.totalCoins = new int[size];
+        this.availableCoins = new int[size];
+        this.winAmount = winAmount;
+        this.leaderId = NO_PLAYER;
+        this.leaderCoins = -1;
+        this.leaderCount = 0;
+        this.winnerId = NO_PLAYER;
+        this.winnerCount = 0;
+
+        for (AionPlayerState playerState : playerStates) {
+            int playerId = playerState.getPlayerId();
+
+            this.totalCoins[playerId] = playerState.getTotalCoins();
+            this.availableCoins[playerId] = playerState.getAvailableCoins();
+            updateStandings(playerId, -1);
+        }
+    }
+
+    public CoinLedger(CoinLedger ledger) {
+        this.totalCoins = Arrays.copyOf(ledger.totalCoins, ledger.totalCoins.length);
+        this.availableCoins = Arrays.copyOf(ledger.availableCoins, ledger.availableCoins.length);
+        this.winAmount = ledger.winAmount;
+        this.leaderId = ledger.leaderId;
+        this.leaderCoins = ledger.leaderCoins;
+        this.leaderCount = ledger.leaderCount;
+        this.winnerId = ledger.winnerId;
+        this.winnerCount = ledger.winnerCount;
+    }
+
+    public void payStake(int playerId, int stake) {
+        this.availableCoins[playerId] -= stake;
+    }
+
+    public void receiveStake(int playerId, int stake) {
+        this.availableCoins[playerId] += stake;
+    }
+
+    public void receiveFee(int playerId, int fee) {
+        if (fee <= 0) return;
+
+        int previousCoins = this.totalCoins[playerId];
+        this.totalCoins[playerId] += fee;
+        this.availableCoins[playerId] += fee;
+        updateStandings(playerId, previousCoins);
+    }
+
+    public int getTotalCoins(int playerId) {
+        return this.totalCoins[playerId];
+    }
+
+    public int getAvailableCoins(int playerId) {
+        return this.availableCoins[playerId];
+    }
+
+    public int getWinnerCount() {
+        return this.winnerCount;
+    }
+
+    /**
+     * @return The player at or above the win amount, NO_PLAYER if there
+     * are none or more than one
+     */
+    public int getWinnerId() {
+        return this.winnerCount == 1 ? this.winnerId : NO_PLAYER;
+    }
+
+    /**
+     * @return The player with the most coins, NO_PLAYER if players are
+     * tied for the most
+     */
+    public int getLeaderId() {
+        return this.leaderCount == 1 ? this.leaderId : NO_PLAYER;
+    }
+
+    /**
+     * @param previousCoins Total coins of the player before they went up,
+     *                      -1 if the player is new
+     */
+    private void updateStandings(int playerId, int previousCoins) {
+        int coins = this.totalCoins[playerId];
+
+        if (coins > this.leaderCoins) {
+            this.leaderId = playerId;
+            this.leaderCoins = coins;
+            this.leaderCount = 1;
+        } else if (coins == this.leaderCoins) {
+            this.leaderCount++;  // wasn't a leader yet, coins went up to the lead
+        }
+
+        if (coins >= this.winAmount && previousCoins < this.winAmount) {
+            this.winnerId = playerId;
+            this.winnerCount++;
+        }
+    }
+}
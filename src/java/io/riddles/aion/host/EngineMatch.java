@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.host;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.riddles.aion.engine.AionEngine;
+import io.riddles.aion.game.state.AionState;
+import io.riddles.javainterface.game.player.PlayerProvider;
+import io.riddles.javainterface.io.IOInterface;
+
+/**
+ * io.riddles.aion.host.EngineMatch - Created on 18-10-26
+ *
+ * A match played through the normal engine lifecycle, talking to its
+ * match wrapper over the given IO handler instead of stdin and stdout.
+ * The engine library keeps the configuration in a static field while it
+ * starts a match, so only one match starts at a time. After that the
+ * match only uses its own context: rounds are played by AionProcessor
+ * and the result, settings included, is built by AionSerializer, which
+ * don't read the static configuration. The lock isn't a synchronized
+ * block, which would pin a virtual thread to its carrier while the match
+ * waits for the wrapper.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class EngineMatch implements Callable<AionState> {
+
+    private static final ReentrantLock START_LOCK = new ReentrantLock();
+
+    private IOInterface ioHandler;
+
+    public EngineMatch(IOInterface ioHandler) {
+        this.ioHandler = ioHandler;
+    }
+
+    @Override
+    public AionState call() throws Exception {
+        AionEngine engine;
+        AionState firstState;
+
+        START_LOCK.lock();
+        try {
+            engine = new AionEngine(new PlayerProvider<>(), this.ioHandler);
+            firstState = engine.willRun();
+        } finally {
+            START_LOCK.unlock();
+        }
+
+        AionState finalState = engine.run(firstState);
+        engine.didRun(firstState, finalState);
+
+        return finalState;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.host;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.riddles.aion.util.ThreadFactories;
+
+/**
+ * io.riddles.aion.host.MatchHost - Created on 18-10-26
+ *
+ * Runs many matches in one process. Matches are taken from a job queue
+ * and each is played on its own thread, which is a virtual thread when
+ * the JVM has them. Matches spend most of their time waiting on bots, so
+ * thousands of them can share a few carrier threads. On older JVMs the
+ * host falls back to platform threads, with the same behaviour.
+ *
+ * Match threads and the dispatcher are daemon threads, so they don't
+ * keep the JVM alive. Call shutdown and then awaitTermination before
+ * main returns, or queued and running matches are dropped.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class MatchHost {
+
+    private static final Logger LOGGER = Logger.getLogger(MatchHost.class.getName());
+    private static final Runnable STOP = () -> {};
+
+    private BlockingQueue<Runnable> jobs;
+    private Semaphore runningMatches;
+    private ThreadFactory threadFactory;
+    private boolean virtualThreads;
+    private Thread dispatcher;
+    private AtomicInteger matchCount;
+    private AtomicInteger unfinishedMatches;  // queued or running
+    private CompletableFuture<Void> terminated;
+    private volatile boolean shutdown;
+
+    /**
+     * @param maxRunningMatches Matches played at the same time, the rest
+     *                          wait in the queue
+     */
+    public MatchHost(int maxRunningMatches) {
+        if (maxRunningMatches < 1) {
+            throw new IllegalArgumentException("Need to run at least one match at a time");
+        }
+
+        this.jobs = new LinkedBlockingQueue<>();
+        this.runningMatches = new Semaphore(maxRunningMatches);
+        this.threadFactory = ThreadFactories.createVirtualThreadFactory("match-");
+        this.virtualThreads = this.threadFactory != null;
+        this.matchCount = new AtomicInteger();
+        this.unfinishedMatches = new AtomicInteger();
+        this.terminated = new CompletableFuture<>();
+        this.shutdown = false;
+
+        if (this.threadFactory == null) {
+            this.threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "match-" + this.matchCount.get());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+
+        this.dispatcher = new Thread(this::dispatch, "match-host");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queues a match, the future completes with its result once it's played
+     */
+    public synchronized <T> CompletableFuture<T> submit(Callable<T> match) {
+        if (this.shutdown) {
+            throw new IllegalStateException("Match host is shut down");
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        this.unfinishedMatches.incrementAndGet();
+
+        this.jobs.add(() -> {
+            try {
+                future.complete(match.call());
+            } catch (Throwable ex) {
+                LOGGER.log(Level.WARNING, "Match failed", ex);
+                future.completeExceptionally(ex);
+            } finally {
+                this.runningMatches.release();
+
+                if (this.unfinishedMatches.decrementAndGet() == 0 && this.shutdown) {
+                    this.terminated.complete(null);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Stops taking matches, the queued and running matches are still played
+     */
+    public synchronized void shutdown() {
+        if (this.shutdown) return;
+
+        this.shutdown = true;
+        this.jobs.add(STOP);
+
+        if (this.unfinishedMatches.get() == 0) {
+            this.terminated.complete(null);
+        }
+    }
+
+    /**
+     * Waits until all matches are played after a shutdown
+     * @return True if they were all played, false if the timeout passed
+     * first
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            this.terminated.get(timeout, unit);
+            return true;
+        } catch (TimeoutException ex) {
+            return false;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex);  // never completed exceptionally
+        }
+    }
+
+    /**
+     * @return Whether the host is shut down and all its matches are played
+     */
+    public boolean isTerminated() {
+        return this.terminated.isDone();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    public int getMatchCount() {
+        return this.matchCount.get();
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                Runnable job = this.jobs.take();
+
+                if (job == STOP) break;
+
+                this.runningMatches.acquire();
+                this.matchCount.incrementAndGet();
+                this.threadFactory.newThread(job).start();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.replay;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import io.riddles.aion.game.ResultWriter;
+
+/**
+ * io.riddles.aion.replay.ReplayConverter - Created on 18-10-26
+ *
+ * Converts a played game between the JSON result file and the binary
+ * replay format, whichever way the input is. Works one state at a time,
+ * so the whole game is never in memory. A JSON file is read twice: once
+ * for the rest of the game, which has to come before the states in a
+ * replay, and once for the states.
+ *
+ * Usage: ReplayConverter input output
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class ReplayConverter {
+
+    private static final String USAGE = "Usage: ReplayConverter input output";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+
+        if (isReplay(input)) {
+            replayToJson(input, output);
+        } else {
+            jsonToReplay(input, output);
+        }
+    }
+
+    public static boolean isReplay(Path path) throws IOException {
+        byte[] magic = new byte[ReplayFormat.MAGIC.length];
+
+        try (InputStream input = Files.newInputStream(path)) {
+            int read = 0;
+            while (read < magic.length) {
+                int count = input.read(magic, read, magic.length - read);
+                if (count < 0) return false;
+                read += count;
+            }
+        }
+
+        return Arrays.equals(magic, ReplayFormat.MAGIC);
+    }
+
+    public static void jsonToReplay(Path input, Path output) throws IOException {
+        JSONObject game = new JSONObject();
+        readGame(input, game, null);
+
+        try (OutputStream stream = Files.newOutputStream(output)) {
+            ReplayWriter writer = new ReplayWriter(stream, game);
+            readGame(input, new JSONObject(), writer::writeState);
+            writer.finish();
+        }
+    }
+
+    public static void replayToJson(Path input, Path output) throws IOException {
+        try (InputStream stream = Files.newInputStream(input);
+             Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            ReplayReader reader = new ReplayReader(stream);
+            ResultWriter resultWriter = new ResultWriter(writer);
+
+            for (JSONObject state = reader.readState(); state != null; state = reader.readState()) {
+                resultWriter.writeState(state);
+            }
+
+            resultWriter.finish(reader.getGame());
+        }
+    }
+
+    /**
+     * Reads the keys of the game into the given object, except the states,
+     * which are read one at a time and passed to the action instead.
+     */
+    private static void readGame(Path path, JSONObject game, StateAction action) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            JSONTokener tokener = new JSONTokener(reader);
+
+            if (tokener.nextClean() != '{') {
+                throw tokener.syntaxError("A game must begin with '{'");
+            }
+
+            char next = tokener.nextClean();
+            while (next != '}') {
+                tokener.back();
+                String key = tokener.nextValue().toString();
+
+                if (tokener.nextClean() != ':') {
+                    throw tokener.syntaxError("Expected a ':' after a key");
+                }
+
+                if (key.equals("states")) {
+                    readStates(tokener, action);
+                } else {
+                    game.put(key, tokener.nextValue());
+                }
+
+                next = tokener.nextClean();
+                if (next == ',') {
+                    next = tokener.nextClean();
+                } else if (next != '}') {
+                    throw tokener.syntaxError("Expected a ',' or '}'");
+                }
+            }
+        }
+    }
+
+    private static void readStates(JSONTokener tokener, StateAction action) throws IOException {
+        if (tokener.nextClean() != '[') {
+            throw tokener.syntaxError("States must begin with '['");
+        }
+
+        char next = tokener.nextClean();
+        while (next != ']') {
+            tokener.back();
+            Object state = tokener.nextValue();
+
+            if (!(state instanceof JSONObject)) {
+                throw new JSONException("A state must be an object");
+            }
+
+            if (action != null) {
+                action.accept((JSONObject) state);
+            }
+
+            next = tokener.nextClean();
+            if (next == ',') {
+                next = tokener.nextClean();
+            } else if (next != ']') {
+                throw tokener.syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    private interface StateAction {
+        void accept(JSONObject state) throws IOException;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.replay;
+
+/**
+ * io.riddles.aion.replay.ReplayFormat - Created on 18-10-26
+ *
+ * Constants of the binary replay format. A replay starts with the magic
+ * bytes and the version, then the game without its states as a JSON
+ * string, then the states, each after a marker, and an END marker after
+ * the last one.
+ *
+ * States are grouped in chunks. A chunk starts with a KEYFRAME, a full
+ * state, and the DELTA states after it only have the transactions that
+ * were removed, spawned or moved since the state before. Every chunk can
+ * be read on its own, so after the END marker comes an index with the
+ * first round and the offset of every chunk, and a trailer with the
+ * offset of the index. The index and trailer have fixed size numbers, so
+ * they can be searched in place. Version 1 replays have STATE markers
+ * with only full states, one dictionary and no index.
+ *
+ * Other numbers are unsigned varints, or zigzag varints when they can be
+ * negative. Network codes are written as their index in a dictionary that
+ * starts with the codes of the networks in the game at every keyframe,
+ * and grows when an index one past its end is followed by a new code.
+ * Travel on a bridge is a fixed-point number in steps of 1 / TRAVEL_SCALE.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public final class ReplayFormat {
+
+    static final byte[] MAGIC = { 'A', 'I', 'O', 'N', 'R', 'P', 'L' };
+    static final byte[] INDEX_MAGIC = { 'A', 'I', 'D', 'X' };
+    static final int VERSION = 2;
+    static final int TRAVEL_SCALE = 10000;
+    static final int TRAILER_SIZE = 8 + 4;  // index offset and INDEX_MAGIC
+    static final int INDEX_ENTRY_SIZE = 4 + 8;  // first round and chunk offset
+
+    static final int END = 0;
+    static final int STATE = 1;
+    static final int KEYFRAME = 2;
+    static final int DELTA = 3;
+
+    static final int ON_NETWORK = 0;
+    static final int ON_BRIDGE = 1;
+
+    static final int SPAWNED = 0;
+    static final int MOVED = 1;
+
+    private ReplayFormat() {}
+}
@@ -0,0 +1,366 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.replay;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * io.riddles.aion.replay.ReplayReader - Created on 18-10-26
+ *
+ * Reads a replay in the binary format described in ReplayFormat. The
+ * states are read one at a time, as the same JSON objects the state
+ * serializer makes, except that travel is rounded to the precision of
+ * the format. Reads replays of every version so far.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class ReplayReader {
+
+    private InputStream input;
+    private JSONObject game;
+    private int version;
+    private ArrayList<String> networkCodes;
+    private ArrayList<String> codes;
+    private ReplayState previous;
+    private boolean ended;
+
+    public ReplayReader(InputStream input) throws IOException {
+        this.input = new BufferedInputStream(input);
+
+        byte[] magic = new byte[ReplayFormat.MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) readByte();
+        }
+
+        if (!Arrays.equals(magic, ReplayFormat.MAGIC)) {
+            throw new IOException("Not an Aion replay");
+        }
+
+        this.version = readVarint();
+        if (this.version < 1 || this.version > ReplayFormat.VERSION) {
+            throw new IOException(String.format("Replay version %d is not supported", this.version));
+        }
+
+        setGame(new JSONObject(readString()));
+    }
+
+    /**
+     * Reads from the start of a chunk of a replay of which the game is
+     * already known
+     */
+    ReplayReader(InputStream chunk, JSONObject game, int version) {
+        this.input = chunk;
+        this.version = version;
+
+        setGame(game);
+    }
+
+    /**
+     * @return The game without its states
+     */
+    public JSONObject getGame() {
+        return this.game;
+    }
+
+    public int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * @return The next state, or null after the last one
+     */
+    public JSONObject readState() throws IOException {
+        ReplayState state = next();
+
+        return state != null ? state.toJson() : null;
+    }
+
+    /**
+     * @return The next state, or null after the last one
+     */
+    ReplayState next() throws IOException {
+        if (this.ended) return null;
+
+        int marker = readByte();
+        switch (marker) {
+            case ReplayFormat.END:
+                this.ended = true;
+                return null;
+            case ReplayFormat.KEYFRAME:
+                this.codes = new ArrayList<>(this.networkCodes);
+                this.previous = readKeyframe();
+                return this.previous;
+            case ReplayFormat.STATE:
+                this.previous = readKeyframe();
+                return this.previous;
+            case ReplayFormat.DELTA:
+                if (this.previous == null) {
+                    throw new IOException("Replay has a delta state before any keyframe");
+                }
+
+                this.previous = readDelta(this.previous);
+                return this.previous;
+            default:
+                throw new IOException(String.format("Unknown marker %d", marker));
+        }
+    }
+
+    private ReplayState readKeyframe() throws IOException {
+        int round = readVarint();
+        ReplayState playersAndBridges = readPlayersAndBridges();
+        ReplayState state = new ReplayState(playersAndBridges.playerCount, playersAndBridges.bridgeCount, readVarint());
+
+        copyPlayersAndBridges(state, playersAndBridges);
+        state.round = round;
+
+        int id = 0;
+        for (int i = 0; i < state.transactionCount; i++) {
+            id += readSignedVarint();
+            state.ids[i] = id;
+            state.froms[i] = readCode();
+            state.tos[i] = readCode();
+            readLocation(state, i);
+        }
+
+        return state;
+    }
+
+    /**
+     * Puts the transactions of the previous state that are not removed
+     * and the spawned and moved ones together, in order of id.
+     */
+    private ReplayState readDelta(ReplayState previous) throws IOException {
+        int round = readVarint();
+        ReplayState playersAndBridges = readPlayersAndBridges();
+
+        int[] removedIds = new int[readVarint()];
+        int id = 0;
+        for (int i = 0; i < removedIds.length; i++) {
+            id += readVarint();
+            removedIds[i] = id;
+        }
+
+        int changedCount = readVarint();
+        ReplayState changed = new ReplayState(0, 0, changedCount);
+        boolean[] spawned = new boolean[changedCount];
+        int spawnedCount = 0;
+        id = 0;
+        for (int i = 0; i < changedCount; i++) {
+            id += readVarint();
+            changed.ids[i] = id;
+
+            int change = readVarint();
+            if (change == ReplayFormat.SPAWNED) {
+                changed.froms[i] = readCode();
+                changed.tos[i] = readCode();
+                spawned[i] = true;
+                spawnedCount++;
+            } else if (change != ReplayFormat.MOVED) {
+                throw new IOException(String.format("Unknown change %d", change));
+            }
+
+            readLocation(changed, i);
+        }
+
+        int count = previous.transactionCount - removedIds.length + spawnedCount;
+        ReplayState state = new ReplayState(playersAndBridges.playerCount, playersAndBridges.bridgeCount, count);
+        copyPlayersAndBridges(state, playersAndBridges);
+        state.round = round;
+
+        int p = 0;
+        int r = 0;
+        int c = 0;
+        for (int i = 0; i < count; i++) {
+            while (r < removedIds.length && p < previous.transactionCount && previous.ids[p] == removedIds[r]) {
+                p++;
+                r++;
+            }
+
+            boolean fromPrevious = p < previous.transactionCount
+                    && (c >= changedCount || previous.ids[p] <= changed.ids[c]);
+
+            if (fromPrevious && c < changedCount && previous.ids[p] == changed.ids[c]) {
+                state.copyTransaction(i, previous, p++);
+                copyLocation(state, i, changed, c++);
+            } else if (fromPrevious) {
+                state.copyTransaction(i, previous, p++);
+            } else if (c < changedCount && spawned[c]) {
+                state.copyTransaction(i, changed, c++);
+            } else {
+                throw new IOException("Replay moves a transaction it doesn't have");
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * @return A state with only the players and bridges read
+     */
+    private ReplayState readPlayersAndBridges() throws IOException {
+        int playerCount = readVarint();
+        int[] playerIds = new int[playerCount];
+        int[] coins = new int[playerCount];
+        int[] values = new int[playerCount];
+
+        for (int i = 0; i < playerCount; i++) {
+            playerIds[i] = readVarint();
+            coins[i] = readSignedVarint();
+            values[i] = readSignedVarint();
+        }
+
+        ReplayState state = new ReplayState(playerCount, readVarint(), 0);
+        state.playerIds = playerIds;
+        state.coins = coins;
+        state.values = values;
+
+        for (int i = 0; i < state.bridgeCount; i++) {
+            state.bridgeIds[i] = readVarint();
+            state.bridgePlayers[i] = readVarint();
+            state.bridgeFees[i] = readVarint();
+            state.bridgeSides1[i] = readCode();
+            state.bridgeSides2[i] = readCode();
+        }
+
+        return state;
+    }
+
+    private void copyPlayersAndBridges(ReplayState state, ReplayState from) {
+        state.playerIds = from.playerIds;
+        state.coins = from.coins;
+        state.values = from.values;
+        state.bridgeIds = from.bridgeIds;
+        state.bridgePlayers = from.bridgePlayers;
+        state.bridgeFees = from.bridgeFees;
+        state.bridgeSides1 = from.bridgeSides1;
+        state.bridgeSides2 = from.bridgeSides2;
+    }
+
+    private void copyLocation(ReplayState state, int transaction, ReplayState from, int fromTransaction) {
+        state.networks[transaction] = from.networks[fromTransaction];
+        state.sides1[transaction] = from.sides1[fromTransaction];
+        state.sides2[transaction] = from.sides2[fromTransaction];
+        state.travels[transaction] = from.travels[fromTransaction];
+        state.previousNetworks[transaction] = from.previousNetworks[fromTransaction];
+    }
+
+    private void readLocation(ReplayState state, int transaction) throws IOException {
+        int location = readVarint();
+
+        if (location == ReplayFormat.ON_NETWORK) {
+            state.networks[transaction] = readCode();
+        } else if (location == ReplayFormat.ON_BRIDGE) {
+            state.sides1[transaction] = readCode();
+            state.sides2[transaction] = readCode();
+            state.travels[transaction] = readVarint();
+            state.previousNetworks[transaction] = readCode();
+        } else {
+            throw new IOException(String.format("Unknown location %d", location));
+        }
+    }
+
+    private void setGame(JSONObject game) {
+        this.game = game;
+        this.networkCodes = getNetworkCodes(game);
+        this.codes = new ArrayList<>(this.networkCodes);
+        this.ended = false;
+    }
+
+    /**
+     * @return The codes of the networks of the game, in order, which are
+     * the start of the code dictionary
+     */
+    static ArrayList<String> getNetworkCodes(JSONObject game) {
+        ArrayList<String> codes = new ArrayList<>();
+        JSONArray networks = game.optJSONArray("networks");
+
+        if (networks != null) {
+            for (int i = 0; i < networks.length(); i++) {
+                String code = networks.getJSONObject(i).optString("code", null);
+
+                if (code != null && !codes.contains(code)) {
+                    codes.add(code);
+                }
+            }
+        }
+
+        return codes;
+    }
+
+    private String readCode() throws IOException {
+        int index = readVarint();
+
+        if (index == this.codes.size()) {
+            this.codes.add(readString());
+        } else if (index > this.codes.size()) {
+            throw new IOException(String.format("Unknown network code %d", index));
+        }
+
+        return this.codes.get(index);
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[readVarint()];
+
+        for (int read = 0; read < bytes.length; ) {
+            int count = this.input.read(bytes, read, bytes.length - read);
+            if (count < 0) throw new EOFException();
+            read += count;
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readSignedVarint() throws IOException {
+        int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            int next = readByte();
+            value |= (next & 0x7F) << shift;
+
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Varint is too long");
+    }
+
+    private int readByte() throws IOException {
+        int next = this.input.read();
+        if (next < 0) throw new EOFException();
+
+        return next;
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.replay;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import io.riddles.aion.game.field.Bridge;
+import io.riddles.aion.game.field.Network;
+import io.riddles.aion.game.field.Transaction;
+import io.riddles.aion.game.state.AionPlayerState;
+import io.riddles.aion.game.state.AionState;
+
+/**
+ * io.riddles.aion.replay.ReplayState - Created on 18-10-26
+ *
+ * One state of a replay as columns of plain values, made from the game or
+ * from the JSON object of the state serializer, so both are written the
+ * same way. Transactions are ordered by id, which lets a state be written
+ * as the difference with the one before it. Travel is already in the
+ * fixed-point steps of the format.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class ReplayState {
+
+    int round;
+
+    int playerCount;
+    int[] playerIds;
+    int[] coins;
+    int[] values;
+
+    int bridgeCount;
+    int[] bridgeIds;
+    int[] bridgePlayers;
+    int[] bridgeFees;
+    String[] bridgeSides1;  // sides sorted by code
+    String[] bridgeSides2;
+
+    int transactionCount;
+    int[] ids;
+    String[] froms;
+    String[] tos;
+    String[] networks;  // null while on a bridge
+    String[] sides1;  // of the bridge it's on, in the order of its string
+    String[] sides2;
+    int[] travels;
+    String[] previousNetworks;
+
+    ReplayState(int playerCount, int bridgeCount, int transactionCount) {
+        this.playerCount = playerCount;
+        this.playerIds = new int[playerCount];
+        this.coins = new int[playerCount];
+        this.values = new int[playerCount];
+
+        this.bridgeCount = bridgeCount;
+        this.bridgeIds = new int[bridgeCount];
+        this.bridgePlayers = new int[bridgeCount];
+        this.bridgeFees = new int[bridgeCount];
+        this.bridgeSides1 = new String[bridgeCount];
+        this.bridgeSides2 = new String[bridgeCount];
+
+        this.transactionCount = transactionCount;
+        this.ids = new int[transactionCount];
+        this.froms = new String[transactionCount];
+        this.tos = new String[transactionCount];
+        this.networks = new String[transactionCount];
+        this.sides1 = new String[transactionCount];
+        this.sides2 = new String[transactionCount];
+        this.travels = new int[transactionCount];
+        this.previousNetworks = new String[transactionCount];
+    }
+
+    static ReplayState fromState(AionState state) {
+        List<AionPlayerState> playerStates = state.getPlayerStates();
+        List<Bridge> bridges = state.getField().getBridges();
+        List<Transaction> transactions = state.getField().getTransactions();
+        ReplayState replayState = new ReplayState(playerStates.size(), bridges.size(), transactions.size());
+
+        replayState.round = state.getRoundNumber();
+
+        for (int i = 0; i < playerStates.size(); i++) {
+            AionPlayerState playerState = playerStates.get(i);
+
+            replayState.playerIds[i] = playerState.getPlayerId();
+            replayState.coins[i] = playerState.getAvailableCoins();
+            replayState.values[i] = playerState.getTotalCoins();
+        }
+
+        for (int i = 0; i < bridges.size(); i++) {
+            Bridge bridge = bridges.get(i);
+
+            replayState.setBridge(i, bridge.getId(), bridge.getPlayerId(), bridge.getFee(),
+                    bridge.getSides().get(0).getCode(), bridge.getSides().get(1).getCode());
+        }
+
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+
+            replayState.ids[i] = transaction.getId();
+            replayState.froms[i] = transaction.getFrom().getCode();
+            replayState.tos[i] = transaction.getTo().getCode();
+
+            Network current = transaction.getCurrentNetwork();
+            if (current != null) {
+                replayState.networks[i] = current.getCode();
+            } else {
+                List<Network> sides = transaction.getCurrentBridges().get(0).getSides();
+
+                replayState.sides1[i] = sides.get(0).getCode();
+                replayState.sides2[i] = sides.get(1).getCode();
+                replayState.travels[i] = toFixedPoint(transaction.getTravelCompletion());
+                replayState.previousNetworks[i] = transaction.getPreviousNetwork().getCode();
+            }
+        }
+
+        return replayState;
+    }
+
+    /**
+     * @param codes Known network codes, to split the bridge a transaction
+     * is on into its sides when codes have dashes
+     */
+    static ReplayState fromJson(JSONObject state, Collection<String> codes) {
+        JSONArray players = state.getJSONArray("players");
+        JSONArray bridges = state.getJSONArray("bridges");
+        JSONArray transactions = sortById(state.getJSONArray("transactions"));
+        ReplayState replayState = new ReplayState(players.length(), bridges.length(), transactions.length());
+
+        replayState.round = state.getInt("round");
+
+        for (int i = 0; i < players.length(); i++) {
+            JSONObject player = players.getJSONObject(i);
+
+            replayState.playerIds[i] = player.getInt("id");
+            replayState.coins[i] = player.getInt("coins");
+            replayState.values[i] = player.getInt("value");
+        }
+
+        for (int i = 0; i < bridges.length(); i++) {
+            JSONObject bridge = bridges.getJSONObject(i);
+            JSONArray sides = bridge.getJSONArray("sides");
+
+            replayState.setBridge(i, bridge.getInt("id"), bridge.getInt("player"), bridge.getInt("fee"),
+                    sides.getString(0), sides.getString(1));
+        }
+
+        for (int i = 0; i < transactions.length(); i++) {
+            JSONObject transaction = transactions.getJSONObject(i);
+            String current = transaction.getString("current");
+
+            replayState.ids[i] = transaction.getInt("id");
+            replayState.froms[i] = transaction.getString("from");
+            replayState.tos[i] = transaction.getString("to");
+
+            if (!transaction.has("previous")) {
+                replayState.networks[i] = current;
+            } else {
+                int split = findBridgeSplit(current, codes);
+
+                replayState.sides1[i] = current.substring(0, split);
+                replayState.sides2[i] = current.substring(split + 1);
+                replayState.travels[i] = toFixedPoint(transaction.getDouble("travel"));
+                replayState.previousNetworks[i] = transaction.getString("previous");
+            }
+        }
+
+        return replayState;
+    }
+
+    /**
+     * @return The same object as the state serializer makes, with travel
+     * rounded to the precision of the format
+     */
+    JSONObject toJson() {
+        JSONObject state = new JSONObject();
+        state.put("round", this.round);
+
+        JSONArray players = new JSONArray();
+        for (int i = 0; i < this.playerCount; i++) {
+            JSONObject player = new JSONObject();
+
+            player.put("id", this.playerIds[i]);
+            player.put("coins", this.coins[i]);
+            player.put("value", this.values[i]);
+
+            players.put(player);
+        }
+        state.put("players", players);
+
+        JSONArray bridges = new JSONArray();
+        for (int i = 0; i < this.bridgeCount; i++) {
+            JSONObject bridge = new JSONObject();
+
+            bridge.put("id", this.bridgeIds[i]);
+            bridge.put("player", this.bridgePlayers[i]);
+            bridge.put("fee", this.bridgeFees[i]);
+            bridge.put("sides", new JSONArray().put(this.bridgeSides1[i]).put(this.bridgeSides2[i]));
+
+            bridges.put(bridge);
+        }
+        state.put("bridges", bridges);
+
+        JSONArray transactions = new JSONArray();
+        for (int i = 0; i < this.transactionCount; i++) {
+            JSONObject transaction = new JSONObject();
+
+            transaction.put("id", this.ids[i]);
+            transaction.put("from", this.froms[i]);
+            transaction.put("to", this.tos[i]);
+
+            if (isOnNetwork(i)) {
+                transaction.put("current", this.networks[i]);
+            } else {
+                transaction.put("current", this.sides1[i] + "-" + this.sides2[i]);
+                transaction.put("travel", this.travels[i] / (double) ReplayFormat.TRAVEL_SCALE);
+                transaction.put("previous", this.previousNetworks[i]);
+            }
+
+            transactions.put(transaction);
+        }
+        state.put("transactions", transactions);
+
+        return state;
+    }
+
+    boolean isOnNetwork(int transaction) {
+        return this.networks[transaction] != null;
+    }
+
+    /**
+     * @return Whether the transaction is at the same place as the other
+     * one, which has the same id
+     */
+    boolean hasSameLocation(int transaction, ReplayState other, int otherTransaction) {
+        if (isOnNetwork(transaction)) {
+            return this.networks[transaction].equals(other.networks[otherTransaction]);
+        }
+
+        return !other.isOnNetwork(otherTransaction)
+                && this.travels[transaction] == other.travels[otherTransaction]
+                && this.sides1[transaction].equals(other.sides1[otherTransaction])
+                && this.sides2[transaction].equals(other.sides2[otherTransaction])
+                && this.previousNetworks[transaction].equals(other.previousNetworks[otherTransaction]);
+    }
+
+    /**
+     * Copies everything of a transaction from another state
+     */
+    void copyTransaction(int transaction, ReplayState other, int otherTransaction) {
+        this.ids[transaction] = other.ids[otherTransaction];
+        this.froms[transaction] = other.froms[otherTransaction];
+        this.tos[transaction] = other.tos[otherTransaction];
+        this.networks[transaction] = other.networks[otherTransaction];
+        this.sides1[transaction] = other.sides1[otherTransaction];
+        this.sides2[transaction] = other.sides2[otherTransaction];
+        this.travels[transaction] = other.travels[otherTransaction];
+        this.previousNetworks[transaction] = other.previousNetworks[otherTransaction];
+    }
+
+    private void setBridge(int index, int id, int player, int fee, String side1, String side2) {
+        boolean sorted = side1.compareTo(side2) <= 0;
+
+        this.bridgeIds[index] = id;
+        this.bridgePlayers[index] = player;
+        this.bridgeFees[index] = fee;
+        this.bridgeSides1[index] = sorted ? side1 : side2;
+        this.bridgeSides2[index] = sorted ? side2 : side1;
+    }
+
+    private static int toFixedPoint(double travel) {
+        return (int) Math.round(travel * ReplayFormat.TRAVEL_SCALE);
+    }
+
+    private static JSONArray sortById(JSONArray transactions) {
+        boolean sorted = true;
+        for (int i = 1; i < transactions.length() && sorted; i++) {
+            sorted = transactions.getJSONObject(i - 1).getInt("id") < transactions.getJSONObject(i).getInt("id");
+        }
+
+        if (sorted) return transactions;
+
+        JSONObject[] objects = new JSONObject[transactions.length()];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = transactions.getJSONObject(i);
+        }
+        Arrays.sort(objects, (a, b) -> Integer.compare(a.getInt("id"), b.getInt("id")));
+
+        return new JSONArray(Arrays.asList(objects));
+    }
+
+    /**
+     * @return Index of the dash between the sides of a bridge, preferring
+     * one with known codes on both sides, in case codes have dashes
+     */
+    private static int findBridgeSplit(String bridge, Collection<String> codes) {
+        int split = bridge.indexOf('-');
+
+        for (int i = split; i >= 0; i = bridge.indexOf('-', i + 1)) {
+            if (codes.contains(bridge.substring(0, i)) && codes.contains(bridge.substring(i + 1))) {
+                return i;
+            }
+        }
+
+        if (split < 0) {
+            throw new IllegalArgumentException(String.format("'%s' is not a bridge", bridge));
+        }
+
+        return split;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.replay;
+
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import io.riddles.aion.game.state.AionState;
+
+/**
+ * io.riddles.aion.replay.ReplayWriter - Created on 18-10-26
+ *
+ * Writes a replay in the binary format described in ReplayFormat. States
+ * can be written from the game itself or from their JSON objects, both
+ * give the same bytes. Only the previous state, the code dictionary and
+ * the chunk index are kept while writing.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class ReplayWriter {
+
+    public static final int DEFAULT_CHUNK_ROUNDS = 25;
+
+    private OutputStream output;
+    private long position;
+    private int chunkRounds;
+    private int chunkStates;
+    private ArrayList<String> networkCodes;
+    private HashMap<String, Integer> codes;
+    private ReplayState previous;
+    private ArrayList<Integer> chunkFirstRounds;
+    private ArrayList<Long> chunkOffsets;
+
+    public ReplayWriter(OutputStream output, JSONObject game) throws IOException {
+        this(output, game, DEFAULT_CHUNK_ROUNDS);
+    }
+
+    /**
+     * @param game The game without its states, states in it are ignored
+     * @param chunkRounds States in a chunk, so at most this many states
+     * have to be read to get to any round
+     */
+    public ReplayWriter(OutputStream output, JSONObject game, int chunkRounds) throws IOException {
+        if (chunkRounds < 1) {
+            throw new IllegalArgumentException("A chunk needs at least one round");
+        }
+
+        this.output = new BufferedOutputStream(output);
+        this.position = 0;
+        this.chunkRounds = chunkRounds;
+        this.codes = new HashMap<>();
+        this.chunkFirstRounds = new ArrayList<>();
+        this.chunkOffsets = new ArrayList<>();
+
+        JSONObject header = new JSONObject();
+        String[] keys = JSONObject.getNames(game);
+        if (keys != null) {
+            for (String key : keys) {
+                if (key.equals("states")) continue;
+
+                header.put(key, game.get(key));
+            }
+        }
+
+        this.networkCodes = ReplayReader.getNetworkCodes(header);
+
+        writeBytes(ReplayFormat.MAGIC);
+        writeVarint(ReplayFormat.VERSION);
+        writeString(header.toString());
+    }
+
+    public void writeState(AionState state) throws IOException {
+        write(ReplayState.fromState(state));
+    }
+
+    /**
+     * Writes a state from the object made by the state serializer
+     */
+    public void writeState(JSONObject state) throws IOException {
+        if (this.codes.isEmpty()) {
+            resetCodes();
+        }
+
+        write(ReplayState.fromJson(state, this.codes.keySet()));
+    }
+
+    /**
+     * Marks the end of the states, writes the index of the chunks and
+     * flushes the output, which is left open.
+     */
+    public void finish() throws IOException {
+        writeByte(ReplayFormat.END);
+
+        long indexOffset = this.position;
+        writeInt(this.chunkOffsets.size());
+        for (int i = 0; i < this.chunkOffsets.size(); i++) {
+            writeInt(this.chunkFirstRounds.get(i));
+            writeLong(this.chunkOffsets.get(i));
+        }
+
+        writeLong(indexOffset);
+        writeBytes(ReplayFormat.INDEX_MAGIC);
+        this.output.flush();
+    }
+
+    private void write(ReplayState state) throws IOException {
+        if (this.previous == null || this.chunkStates >= this.chunkRounds) {
+            this.chunkFirstRounds.add(state.round);
+            this.chunkOffsets.add(this.position);
+            this.chunkStates = 0;
+
+            resetCodes();
+            writeByte(ReplayFormat.KEYFRAME);
+            writeKeyframe(state);
+        } else {
+            writeByte(ReplayFormat.DELTA);
+            writeDelta(state, this.previous);
+        }
+
+        this.chunkStates++;
+        this.previous = state;
+    }
+
+    private void writeKeyframe(ReplayState state) throws IOException {
+        writeVarint(state.round);
+        writePlayersAndBridges(state);
+
+        writeVarint(state.transactionCount);
+        int previousId = 0;
+        for (int i = 0; i < state.transactionCount; i++) {
+            writeSignedVarint(state.ids[i] - previousId);
+            writeCode(state.froms[i]);
+            writeCode(state.tos[i]);
+            writeLocation(state, i);
+            previousId = state.ids[i];
+        }
+    }
+
+    /**
+     * Writes the ids of the transactions that are gone since the previous
+     * state, then the transactions that were spawned or moved. Both lists
+     * are ordered by id, so ids are written as the step from the one
+     * before.
+     */
+    private void writeDelta(ReplayState state, ReplayState previous) throws IOException {
+        writeVarint(state.round);
+        writePlayersAndBridges(state);
+
+        int[] removedIds = new int[previous.transactionCount];
+        int[] changed = new int[state.transactionCount];
+        int[] changes = new int[state.transactionCount];
+        int removedCount = 0;
+        int changedCount = 0;
+        int p = 0;
+
+        for (int i = 0; i < state.transactionCount; i++) {
+            while (p < previous.transactionCount && previous.ids[p] < state.ids[i]) {
+                removedIds[removedCount++] = previous.ids[p++];
+            }
+
+            if (p < previous.transactionCount && previous.ids[p] == state.ids[i]) {
+                if (!state.hasSameLocation(i, previous, p)) {
+                    changes[changedCount] = ReplayFormat.MOVED;
+                    changed[changedCount++] = i;
+                }
+                p++;
+            } else {
+                changes[changedCount] = ReplayFormat.SPAWNED;
+                changed[changedCount++] = i;
+            }
+        }
+
+        while (p < previous.transactionCount) {
+            removedIds[removedCount++] = previous.ids[p++];
+        }
+
+        writeVarint(removedCount);
+        int previousId = 0;
+        for (int i = 0; i < removedCount; i++) {
+            writeVarint(removedIds[i] - previousId);
+            previousId = removedIds[i];
+        }
+
+        writeVarint(changedCount);
+        previousId = 0;
+        for (int i = 0; i < changedCount; i++) {
+            int transaction = changed[i];
+
+            writeVarint(state.ids[transaction] - previousId);
+            writeVarint(changes[i]);
+            previousId = state.ids[transaction];
+
+            if (changes[i] == ReplayFormat.SPAWNED) {
+                writeCode(state.froms[transaction]);
+                writeCode(state.tos[transaction]);
+            }
+
+            writeLocation(state, transaction);
+        }
+    }
+
+    private void writePlayersAndBridges(ReplayState state) throws IOException {
+        writeVarint(state.playerCount);
+        for (int i = 0; i < state.playerCount; i++) {
+            writeVarint(state.playerIds[i]);
+            writeSignedVarint(state.coins[i]);
+            writeSignedVarint(state.values[i]);
+        }
+
+        writeVarint(state.bridgeCount);
+        for (int i = 0; i < state.bridgeCount; i++) {
+            writeVarint(state.bridgeIds[i]);
+            writeVarint(state.bridgePlayers[i]);
+            writeVarint(state.bridgeFees[i]);
+            writeCode(state.bridgeSides1[i]);
+            writeCode(state.bridgeSides2[i]);
+        }
+    }
+
+    private void writeLocation(ReplayState state, int transaction) throws IOException {
+        if (state.isOnNetwork(transaction)) {
+            writeVarint(ReplayFormat.ON_NETWORK);
+            writeCode(state.networks[transaction]);
+        } else {
+            writeVarint(ReplayFormat.ON_BRIDGE);
+            writeCode(state.sides1[transaction]);
+            writeCode(state.sides2[transaction]);
+            writeVarint(state.travels[transaction]);
+            writeCode(state.previousNetworks[transaction]);
+        }
+    }
+
+    /**
+     * Every chunk starts with only the codes of the networks, so it can
+     * be read without the chunks before it
+     */
+    private void resetCodes() {
+        this.codes.clear();
+
+        for (String code : this.networkCodes) {
+            this.codes.put(code, this.codes.size());
+        }
+    }
+
+    private void writeCode(String code) throws IOException {
+        Integer index = this.codes.get(code);
+
+        if (index != null) {
+            writeVarint(index);
+            return;
+        }
+
+        writeVarint(this.codes.size());
+        writeString(code);
+        this.codes.put(code, this.codes.size());
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        writeVarint(bytes.length);
+        writeBytes(bytes);
+    }
+
+    private void writeSignedVarint(int value) throws IOException {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        writeByte(value);
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        this.output.write(bytes);
+        this.position += bytes.length;
+    }
+
+    private void writeByte(int value) throws IOException {
+        this.output.write(value);
+        this.position++;
+    }
+}
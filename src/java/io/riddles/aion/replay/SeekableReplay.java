@@ -0,0 +1,189 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.replay;
+
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * io.riddles.aion.replay.SeekableReplay - Created on 18-10-26
+ *
+ * Reads any round of a replay file without reading the rounds before it.
+ * The index at the end of the file is memory-mapped and searched for the
+ * chunk with the round, and only that chunk is mapped and read, from its
+ * keyframe up to the round.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class SeekableReplay implements Closeable {
+
+    private FileChannel channel;
+    private JSONObject game;
+    private int version;
+    private MappedByteBuffer index;
+    private int chunkCount;
+    private long indexOffset;
+
+    public SeekableReplay(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            ReplayReader reader = new ReplayReader(Channels.newInputStream(this.channel));
+            this.game = reader.getGame();
+            this.version = reader.getVersion();
+
+            if (this.version < 2) {
+                throw new IOException(String.format("Replay version %d has no round index", this.version));
+            }
+
+            long size = this.channel.size();
+            ByteBuffer trailer = ByteBuffer.allocate(ReplayFormat.TRAILER_SIZE);
+            while (trailer.hasRemaining()) {
+                if (this.channel.read(trailer, size - ReplayFormat.TRAILER_SIZE + trailer.position()) < 0) {
+                    throw new IOException("Replay has no round index");
+                }
+            }
+            trailer.flip();
+
+            this.indexOffset = trailer.getLong();
+            byte[] magic = new byte[ReplayFormat.INDEX_MAGIC.length];
+            trailer.get(magic);
+
+            if (!Arrays.equals(magic, ReplayFormat.INDEX_MAGIC)
+                    || this.indexOffset < 0 || this.indexOffset > size - ReplayFormat.TRAILER_SIZE) {
+                throw new IOException("Replay has no round index");
+            }
+
+            this.index = this.channel.map(FileChannel.MapMode.READ_ONLY, this.indexOffset,
+                    size - ReplayFormat.TRAILER_SIZE - this.indexOffset);
+            this.chunkCount = this.index.getInt(0);
+        } catch (IOException | RuntimeException ex) {
+            this.channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return The game without its states
+     */
+    public JSONObject getGame() {
+        return this.game;
+    }
+
+    public int getChunkCount() {
+        return this.chunkCount;
+    }
+
+    /**
+     * @return The state of the given round, or null if the replay doesn't
+     * have it
+     */
+    public JSONObject readRound(int round) throws IOException {
+        int chunk = findChunk(round);
+        if (chunk < 0) return null;
+
+        long start = getChunkOffset(chunk);
+        long end = chunk + 1 < this.chunkCount ? getChunkOffset(chunk + 1) : this.indexOffset;
+        MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        ReplayReader reader = new ReplayReader(new BufferInputStream(buffer), this.game, this.version);
+
+        // Only the last chunk ends with an end marker, the others just end
+        while (buffer.hasRemaining()) {
+            ReplayState state = reader.next();
+
+            if (state == null || state.round > round) break;
+
+            if (state.round == round) {
+                return state.toJson();
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * @return The last chunk that starts at or before the round, or -1
+     */
+    private int findChunk(int round) {
+        int low = 0;
+        int high = this.chunkCount - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+
+            if (getChunkFirstRound(middle) <= round) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return found;
+    }
+
+    private int getChunkFirstRound(int chunk) {
+        return this.index.getInt(4 + chunk * ReplayFormat.INDEX_ENTRY_SIZE);
+    }
+
+    private long getChunkOffset(int chunk) {
+        return this.index.getLong(4 + chunk * ReplayFormat.INDEX_ENTRY_SIZE + 4);
+    }
+
+    private static class BufferInputStream extends InputStream {
+
+        private ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!this.buffer.hasRemaining()) return -1;
+
+            int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+
+            return count;
+        }
+    }
+}
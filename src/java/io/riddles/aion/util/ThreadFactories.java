@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * io.riddles.aion.util.ThreadFactories - Created on 18-10-26
+ *
+ * Thread factories shared by the match host and the processor.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+public class ThreadFactories {
+
+    private ThreadFactories() {}
+
+    /**
+     * Thread.ofVirtual().factory() when running on a JVM that has virtual
+     * threads. Looked up by reflection so the engine still builds for Java 8.
+     *
+     * @param prefix Name of the threads, followed by a counter
+     * @return The factory, null if there are no virtual threads
+     */
+    public static ThreadFactory createVirtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            Method factory = builderClass.getMethod("factory");
+
+            builder = name.invoke(builder, prefix, 0L);
+
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        } catch (RuntimeException ex) {
+            // Preview feature that isn't enabled
+            return null;
+        }
+    }
+}
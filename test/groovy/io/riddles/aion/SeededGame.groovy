@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion
+
+import io.riddles.aion.batch.BatchRunner
+import io.riddles.aion.batch.Strategy
+import io.riddles.aion.engine.AionContext
+import io.riddles.aion.engine.AionEngine
+import io.riddles.aion.engine.AionSettings
+import io.riddles.aion.game.move.AionMoveDeserializer
+import io.riddles.aion.game.processor.AionRules
+import io.riddles.aion.game.state.AionPlayerState
+import io.riddles.aion.game.state.AionState
+import io.riddles.javainterface.configuration.Configuration
+
+/**
+ * io.riddles.aion.SeededGame - Created on 18-10-26
+ *
+ * Plays a game with a greedy and a random bot for specs, the same seed
+ * always gives the same game.
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class SeededGame {
+
+    AionContext context
+    AionRules rules
+    AionMoveDeserializer moveDeserializer
+    Strategy[] strategies = [BatchRunner.createStrategy("greedy"), BatchRunner.createStrategy("random")]
+    Random botRandom
+    List<AionState> states = new ArrayList<>()  // initial state first
+
+    SeededGame(Configuration configuration, long seed) {
+        Random random = new Random(seed)
+        this.context = new AionContext(
+                new AionSettings(configuration), AionEngine.readFieldData("/data.json"), random)
+        this.rules = new AionRules(this.context)
+        this.moveDeserializer = new AionMoveDeserializer(this.context.getSettings())
+        this.botRandom = new Random(seed + 1)
+        this.states.add(this.rules.createInitialState([0, 1]))
+    }
+
+    static Configuration createConfiguration() {
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("transactionRate", 3)
+        configuration.put("maxRounds", 120)
+        configuration.put("winAmount", 5000)
+        return configuration
+    }
+
+    AionState getInitialState() {
+        return this.states.get(0)
+    }
+
+    /**
+     * Plays the next round, calls onRoundStart with the state before the
+     * players move
+     */
+    AionState playRound(Closure onRoundStart = null) {
+        AionState previous = this.states.get(this.states.size() - 1)
+        AionState state = this.rules.startRound(previous, this.states.size())
+
+        if (onRoundStart != null) onRoundStart(state)
+
+        for (AionPlayerState playerState : state.getPlayerStates()) {
+            int playerId = playerState.getPlayerId()
+            String input = this.strategies[playerId].getMove(state, playerId, this.botRandom)
+            state.getField().processMove(this.moveDeserializer.traverse(input), playerState)
+        }
+
+        this.rules.finishRound(state)
+        this.states.add(state)
+
+        return state
+    }
+
+    boolean hasEnded() {
+        return this.rules.hasGameEnded(this.states.get(this.states.size() - 1))
+    }
+}
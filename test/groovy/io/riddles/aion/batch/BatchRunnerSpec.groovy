@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.batch
+
+import io.riddles.aion.engine.AionEngine
+import io.riddles.aion.engine.AionSettings
+import io.riddles.javainterface.configuration.Configuration
+import org.json.JSONObject
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import java.util.stream.Collectors
+
+/**
+ * io.riddles.aion.batch.BatchRunnerSpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class BatchRunnerSpec extends Specification {
+
+    def "test unknown swept setting"() {
+
+        setup:
+        BatchRunner runner = new BatchRunner(["--seeds", "1", "--set", "maxRound=50"] as String[])
+
+        when:
+        runner.run()
+
+        then:
+        IllegalArgumentException ex = thrown(IllegalArgumentException)
+        ex.getMessage() == "Unknown setting maxRound"
+    }
+
+    def "test known swept setting"() {
+
+        setup:
+        BatchRunner runner = new BatchRunner(["--seeds", "1-2", "--set", "maxRounds=20,30"] as String[])
+
+        when:
+        JSONObject results = runner.run().toJSON()
+
+        then:
+        results.toString().contains("maxRounds")
+    }
+
+    def "test match result independent of thread count"() {
+
+        setup:
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("maxRounds", 60)
+        BatchVariant variant = new BatchVariant(
+                0, "/data.json", AionEngine.readFieldData("/data.json"), new AionSettings(configuration), new JSONObject())
+        Strategy[] strategies = [BatchRunner.createStrategy("greedy"), BatchRunner.createStrategy("random")]
+        List<BatchMatch> matches = (1L..24L).collect { new BatchMatch(variant, it, strategies) }
+
+        when:
+        List<String> sequential = play(matches, 1)
+        List<String> parallel = play(matches, 4)
+        List<String> again = play(matches, 8)
+
+        then:
+        sequential == parallel
+        sequential == again
+        sequential.toSet().size() > 1
+    }
+
+    private static List<String> play(List<BatchMatch> matches, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads)
+
+        try {
+            return pool.submit({
+                matches.parallelStream()
+                        .map({ BatchMatch match -> describe(match.play()) })
+                        .collect(Collectors.toList())
+            } as Callable<List<String>>).get()
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    private static String describe(MatchResult result) {
+        return String.format("%d %d %s %d %d", result.getSeed(), result.getRounds(), result.getWinnerId(),
+                result.getTotalCoins(0), result.getTotalCoins(1))
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.engine
+
+import io.riddles.aion.game.player.AionPlayer
+import io.riddles.aion.game.processor.AionProcessor
+import io.riddles.aion.game.state.AionState
+import io.riddles.aion.game.state.AionStateSerializer
+import io.riddles.javainterface.configuration.Configuration
+import io.riddles.javainterface.engine.AbstractEngine
+import io.riddles.javainterface.game.player.PlayerProvider
+import io.riddles.javainterface.io.IOHandler
+import org.json.JSONObject
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+
+/**
+ * io.riddles.aion.engine.AionEngineSpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class AionEngineSpec extends Specification {
+
+    def "test matches with different settings played at the same time"() {
+
+        setup:
+        StartedMatch match1 = startMatch(createConfiguration(6, 30, 400, "1"))
+        StartedMatch match2 = startMatch(createConfiguration(3, 45, 700, "2"))
+        AbstractEngine.configuration = createConfiguration(9, 10, 100, "3")
+
+        ExecutorService executor = Executors.newFixedThreadPool(2)
+        CountDownLatch start = new CountDownLatch(2)
+
+        when:
+        List<Future<JSONObject>> results = [match1, match2].collect { match ->
+            executor.submit({
+                start.countDown()
+                start.await()
+                return playToEnd(match)
+            } as Callable<JSONObject>)
+        }
+        JSONObject result1 = results[0].get(60, TimeUnit.SECONDS)
+        JSONObject result2 = results[1].get(60, TimeUnit.SECONDS)
+
+        then:
+        result1.getJSONObject("settings").getInt("transactionSpeed") == 6
+        result1.getJSONObject("settings").getInt("initialCoins") == 400
+        result1.getJSONArray("states").length() == 31
+        result2.getJSONObject("settings").getInt("transactionSpeed") == 3
+        result2.getJSONObject("settings").getInt("initialCoins") == 700
+        result2.getJSONArray("states").length() == 46
+        result1.getJSONObject("settings").getJSONObject("players").getInt("count") == 2
+        result2.getJSONObject("settings").getJSONObject("players").has("winnerId")
+
+        cleanup:
+        executor.shutdown()
+        AbstractEngine.configuration = null
+    }
+
+    /**
+     * Starts a match the way EngineMatch does, with the configuration in
+     * the static field of the library only while it starts
+     */
+    private static StartedMatch startMatch(Configuration configuration) {
+        PlayerProvider<AionPlayer> playerProvider = new PlayerProvider<>()
+        playerProvider.add(new PassingPlayer(0))
+        playerProvider.add(new PassingPlayer(1))
+
+        AbstractEngine.configuration = configuration
+        AionEngine engine = new AionEngine(playerProvider, new IOHandler())
+
+        return new StartedMatch(engine: engine, initialState: engine.willRun())
+    }
+
+    /**
+     * Plays the rounds and builds the result like the game loop of the
+     * library and didRun do
+     */
+    private static JSONObject playToEnd(StartedMatch match) {
+        AionProcessor processor = match.engine.@processor
+        AionState state = match.initialState
+
+        while (!processor.hasGameEnded(state)) {
+            state = processor.createNextState(state, state.getRoundNumber() + 1)
+        }
+
+        String result = match.engine.createGameSerializer()
+                .traverseToString(processor, match.initialState, new AionStateSerializer())
+
+        return new JSONObject(result)
+    }
+
+    private static Configuration createConfiguration(int transactionSpeed, int maxRounds, int initialCoins, String seed) {
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("transactionSpeed", transactionSpeed)
+        configuration.put("maxRounds", maxRounds)
+        configuration.put("initialCoins", initialCoins)
+        configuration.put("winAmount", 100000)
+        configuration.put("seed", seed)
+        return configuration
+    }
+
+    private static class StartedMatch {
+        AionEngine engine
+        AionState initialState
+    }
+
+    private static class PassingPlayer extends AionPlayer {
+
+        PassingPlayer(int id) {
+            super(id)
+        }
+
+        @Override
+        String requestMove(Enum actionType) {
+            return "pass"
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game
+
+import io.riddles.aion.SeededGame
+import io.riddles.aion.game.state.AionPlayerState
+import io.riddles.aion.game.state.AionState
+import io.riddles.aion.game.state.AionStateSerializer
+import org.json.JSONArray
+import org.json.JSONObject
+import spock.lang.Specification
+
+/**
+ * io.riddles.aion.game.ResultWriterSpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class ResultWriterSpec extends Specification {
+
+    def "test result writer states equal to serialized states"() {
+
+        setup:
+        SeededGame game = new SeededGame(SeededGame.createConfiguration(), seed)
+        AionStateSerializer serializer = new AionStateSerializer()
+        List<String> serialized = new ArrayList<>()
+        serialized.add(serializer.visitObject(game.getInitialState()).toString())
+        while (!game.hasEnded()) {
+            serialized.add(serializer.visitObject(game.playRound()).toString())
+        }
+
+        JSONObject gameObject = new JSONObject()
+        gameObject.put("settings", new JSONObject().put("maxRounds", 120))
+        gameObject.put("winner", 1)
+        gameObject.put("states", new JSONArray().put("ignored"))
+
+        when:
+        StringWriter output = new StringWriter()
+        ResultWriter writer = new ResultWriter(output)
+        for (AionState state : game.getStates()) {
+            writer.writeState(state)
+        }
+        writer.finish(gameObject)
+        JSONObject result = new JSONObject(output.toString())
+        JSONArray states = result.getJSONArray("states")
+
+        int mismatches = 0
+        for (int i = 0; i < game.getStates().size(); i++) {
+            JSONObject state = states.getJSONObject(i)
+            if (!state.similar(new JSONObject(serialized.get(i)))
+                    || !hasSameContent(state, game.getStates().get(i))) {
+                mismatches++
+            }
+        }
+
+        then:
+        states.length() == game.getStates().size()
+        mismatches == 0
+        result.getInt("winner") == 1
+        result.getJSONObject("settings").getInt("maxRounds") == 120
+
+        where:
+        seed << [1L, 2L]
+    }
+
+    def "test result writer state from json"() {
+
+        setup:
+        SeededGame game = new SeededGame(SeededGame.createConfiguration(), 3L)
+        for (int round = 1; round <= 10; round++) game.playRound()
+        AionStateSerializer serializer = new AionStateSerializer()
+        StringWriter fromStates = new StringWriter()
+        ResultWriter stateWriter = new ResultWriter(fromStates)
+        StringWriter fromJson = new StringWriter()
+        ResultWriter jsonWriter = new ResultWriter(fromJson)
+
+        when:
+        for (AionState state : game.getStates()) {
+            stateWriter.writeState(state)
+            jsonWriter.writeState(serializer.visitObject(state))
+        }
+        stateWriter.finish(new JSONObject())
+        jsonWriter.finish(new JSONObject())
+
+        then:
+        new JSONObject(fromStates.toString()).similar(new JSONObject(fromJson.toString()))
+
+        when:
+        stateWriter.writeState(game.getInitialState())
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    /**
+     * Checked against the state itself, not only against the serializer
+     */
+    private static boolean hasSameContent(JSONObject stateObject, AionState state) {
+        if (stateObject.getInt("round") != state.getRoundNumber()) return false
+
+        JSONArray players = stateObject.getJSONArray("players")
+        for (int i = 0; i < players.length(); i++) {
+            AionPlayerState playerState = state.getPlayerStates().get(i)
+            JSONObject player = players.getJSONObject(i)
+
+            if (player.getInt("id") != playerState.getPlayerId()
+                    || player.getInt("coins") != playerState.getAvailableCoins()
+                    || player.getInt("value") != playerState.getTotalCoins()) {
+                return false
+            }
+        }
+
+        JSONArray bridges = stateObject.getJSONArray("bridges")
+        List<Integer> bridgeIds = (0..<bridges.length()).collect { bridges.getJSONObject(it).getInt("id") }
+        JSONArray transactions = stateObject.getJSONArray("transactions")
+        List<Integer> transactionIds = (0..<transactions.length()).collect { transactions.getJSONObject(it).getInt("id") }
+
+        return bridgeIds == state.getField().getBridges().collect { it.getId() } &&
+                transactionIds == state.getField().getTransactions().collect { it.getId() }
+    }
+}
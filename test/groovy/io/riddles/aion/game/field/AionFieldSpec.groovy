@@ -19,12 +19,19 @@
 
 package io.riddles.aion.game.field
 
+import io.riddles.aion.engine.AionContext
 import io.riddles.aion.engine.AionEngine
+import io.riddles.aion.engine.AionSettings
+import io.riddles.aion.game.move.AionMove
+import io.riddles.aion.game.state.AionPlayerState
 import io.riddles.aion.game.state.AionState
+import io.riddles.javainterface.configuration.Configuration
 import io.riddles.javainterface.game.player.PlayerProvider
 import io.riddles.javainterface.io.FileIOHandler
 import spock.lang.Specification
 
+import java.awt.Point
+
 /**
  * io.riddles.aion.game.field.AionFieldSpec - Created on 16-3-18
  *
@@ -45,7 +52,7 @@ class AionFieldSpec extends Specification {
         Network btc = field.findNetwork("BTC")
 
         when:
-        ShortestPathHandler handler = new ShortestPathHandler(field.getNetworks())
+        ShortestPathHandler handler = new ShortestPathHandler(field.getNetworks(), field.getBridges())
         ArrayList<Network> path = handler.getShortestPath(eth, btc)
 
         then:
@@ -65,7 +72,7 @@ class AionFieldSpec extends Specification {
         when:
         field.addBridge(0, 1, "ETH", "BTC")
         field.addBridge(0, 3, "ETH", "BTC")
-        ShortestPathHandler handler = new ShortestPathHandler(field.getNetworks())
+        ShortestPathHandler handler = new ShortestPathHandler(field.getNetworks(), field.getBridges())
         ArrayList<Network> path = handler.getShortestPath(eth, btc)
 
         then:
@@ -89,7 +96,7 @@ class AionFieldSpec extends Specification {
         field.addBridge(0, 1, "ADA", "NEO")
         field.addBridge(0, 3, "ADA", "NEO")
         field.addBridge(0, 1, "NEO", "BTC")
-        ShortestPathHandler handler = new ShortestPathHandler(field.getNetworks())
+        ShortestPathHandler handler = new ShortestPathHandler(field.getNetworks(), field.getBridges())
         ArrayList<Network> path = handler.getShortestPath(eth, btc)
 
         then:
@@ -111,10 +118,359 @@ class AionFieldSpec extends Specification {
 
         when:
         field.addBridge(0, 1, "NEO", "XRP")
-        ShortestPathHandler handler = new ShortestPathHandler(field.getNetworks())
+        ShortestPathHandler handler = new ShortestPathHandler(field.getNetworks(), field.getBridges())
         ArrayList<Network> path = handler.getShortestPath(eth, btc)
 
         then:
         path == null
     }
+
+    def "test shortest path handler equal cost paths"() {
+
+        setup:
+        FileIOHandler ioHandler = new FileIOHandler("./test/resources/wrapper.txt")
+        AionEngine engine = new AionEngine(new PlayerProvider<>(), ioHandler)
+        AionState initialState = engine.willRun()
+        AionField field = initialState.getField()
+        Network eth = field.findNetwork("ETH")
+        Network btc = field.findNetwork("BTC")
+
+        when:
+        field.addBridge(0, 1, "ETH", "NEO")
+        field.addBridge(0, 1, "NEO", "BTC")
+        field.addBridge(1, 1, "ETH", "ADA")
+        field.addBridge(1, 1, "ADA", "BTC")
+        ShortestPathHandler handler = new ShortestPathHandler(field.getNetworks(), field.getBridges())
+        ArrayList<Network> path = handler.getShortestPath(eth, btc)
+
+        then:
+        path.size() == 2
+        path.get(0).getCode() == "ADA"
+        path.get(1).getCode() == "BTC"
+    }
+
+    def "test shortest paths updated after bridge change"() {
+
+        setup:
+        FileIOHandler ioHandler = new FileIOHandler("./test/resources/wrapper.txt")
+        AionEngine engine = new AionEngine(new PlayerProvider<>(), ioHandler)
+        AionState initialState = engine.willRun()
+        AionField field = initialState.getField()
+        Network eth = field.findNetwork("ETH")
+        Network btc = field.findNetwork("BTC")
+        Network neo = field.findNetwork("NEO")
+
+        when:
+        field.addBridge(0, 3, "ETH", "BTC")
+        AionField copy = new AionField(field)
+        RoutingTable before = copy.getRoutingTable()
+        int beforeNextHop = before.getNextHop(eth.getIndex(), btc.getIndex())
+        int beforeCost = before.getCost(eth.getIndex(), btc.getIndex())
+        int beforeNeo = before.getNextHop(eth.getIndex(), neo.getIndex())
+        field.addBridge(0, 1, "ETH", "NEO")
+        field.addBridge(0, 1, "NEO", "BTC")
+        RoutingTable after = field.getRoutingTable()
+
+        then:
+        beforeNextHop == btc.getIndex()
+        beforeCost == 3
+        beforeNeo == RoutingTable.NO_ROUTE
+        after.getNextHop(eth.getIndex(), btc.getIndex()) == neo.getIndex()
+        after.getCost(eth.getIndex(), btc.getIndex()) == 2
+        !after.is(before)
+        before.getCost(eth.getIndex(), btc.getIndex()) == 3
+    }
+
+    def "test field copy shares unchanged networks and bridges"() {
+
+        setup:
+        FileIOHandler ioHandler = new FileIOHandler("./test/resources/wrapper.txt")
+        AionEngine engine = new AionEngine(new PlayerProvider<>(), ioHandler)
+        AionState initialState = engine.willRun()
+        AionField field = initialState.getField()
+        Network eth = field.findNetwork("ETH")
+        Network neo = field.findNetwork("NEO")
+
+        when:
+        field.addBridge(0, 1, "ETH", "BTC")
+        field.addBridge(1, 2, "NEO", "BTC")
+        AionField copy = new AionField(field)
+        copy.addBridge(0, 1, "ETH", "NEO")
+
+        then:
+        copy.getNetworks().is(field.getNetworks())
+        copy.findBridge(1).is(field.findBridge(1))
+        copy.getBridges().size() == 3
+        field.getBridges().size() == 2
+        copy.getRoutingTable().getCost(eth.getIndex(), neo.getIndex()) == 1
+        field.getRoutingTable().getCost(eth.getIndex(), neo.getIndex()) == 3
+        copy.getTransactions()*.getId() == field.getTransactions()*.getId()
+    }
+
+    def "test transaction table copies and removes rows"() {
+
+        setup:
+        TransactionTable table = new TransactionTable(new ArrayList<Network>())
+        table.addAll(0, [0, 1, 2, 3] as int[], [1, 2, 3, 0] as int[], 4)
+
+        when:
+        TransactionTable copy = new TransactionTable(table)
+        copy.setCompleted(1)
+        copy.remove(1)
+        int row = copy.add(4, 2, 0)
+        ArrayList<Integer> dirty = new ArrayList<>()
+        copy.forEachDirty { int r -> dirty.add(r) }
+
+        then:
+        table.size() == 4
+        !table.isCompleted(1)
+        !copy.hasCompleted()
+        (0..<copy.size()).collect { copy.getId(it) } == [0, 3, 2, 4]
+        copy.asList()*.getId() == [0, 2, 3, 4]
+        row == 3
+        dirty == [3]
+    }
+
+    def "test transaction table copies only the chunks it writes"() {
+
+        setup:
+        int[] from = (0..<200).collect { it % 4 } as int[]
+        int[] to = (0..<200).collect { (it + 1) % 4 } as int[]
+        TransactionTable table = new TransactionTable(new ArrayList<Network>())
+        table.addAll(0, from, to, 200)
+
+        when:
+        TransactionTable copy = new TransactionTable(table)
+        copy.setCompleted(150)
+        boolean[] shared = (0..<4).collect { copy.@chunks[it].is(table.@chunks[it]) } as boolean[]
+        copy.remove(5)
+
+        then:
+        shared == [true, true, false, true] as boolean[]
+        !table.isCompleted(150)
+        copy.isCompleted(150)
+        table.getWaitingRows().toList().sort() == (0..<200).toList()
+        copy.getWaitingRows().toList().sort() == (0..<199).toList()
+        copy.getId(5) == 199
+        table.getId(5) == 5
+    }
+
+    def "test spawner draws the same networks as removing them from a list"() {
+
+        setup:
+        TransactionSpawner spawner = new TransactionSpawner(7)
+        Random listRandom = new Random(42)
+        int[] from = new int[500]
+        int[] to = new int[500]
+
+        when:
+        spawner.spawn(new Random(42), 500, from, to)
+
+        then:
+        (0..<500).every { i ->
+            ArrayList<Integer> networks = new ArrayList<>(0..<7)
+            int expectedFrom = networks.remove(listRandom.nextInt(networks.size()))
+            int expectedTo = networks.remove(listRandom.nextInt(networks.size()))
+            from[i] == expectedFrom && to[i] == expectedTo
+        }
+    }
+
+    def "test weighted spawner follows network popularity"() {
+
+        setup:
+        TransactionSpawner spawner = new TransactionSpawner([0, 1, 3, 0] as double[])
+        int[] from = new int[4000]
+        int[] to = new int[4000]
+
+        when:
+        spawner.spawn(new Random(1), 4000, from, to)
+        int fromTwo = from.toList().count { it == 2 }
+
+        then:
+        spawner.isWeighted()
+        (0..<4000).every { from[it] != to[it] && from[it] in [1, 2] && to[it] in [1, 2] }
+        fromTwo > 2800 && fromTwo < 3200
+    }
+
+    def "test bridge crossing rounds match accumulated travel"() {
+
+        setup:
+        Network side1 = new Network(0, "A", "A", new Point(0, 0))
+        Network side2 = new Network(1, "B", "B", new Point(7, 3))
+
+        when:
+        Bridge bridge = new Bridge(0, 0, 1, side1, side2, 3)
+
+        then:
+        bridge.getCrossingRounds() == 3
+        bridge.getTravelCompletion(bridge.getCrossingRounds() - 1) < 1
+        bridge.getTravelCompletion(bridge.getCrossingRounds()) >= 1
+    }
+
+    def "test transaction table lists waiting and arriving rows"() {
+
+        setup:
+        Network a = new Network(0, "A", "A", new Point(0, 0))
+        Network b = new Network(1, "B", "B", new Point(7, 3))
+        Network c = new Network(2, "C", "C", new Point(8, 3))
+        TransactionTable table = new TransactionTable(new ArrayList<Network>([a, b, c]))
+        table.addAll(0, [0, 1, 0] as int[], [1, 2, 1] as int[], 3)
+
+        when:
+        int tick = table.advance()
+        table.depart(0, new ArrayList<Bridge>([new Bridge(0, 0, 1, a, b, 3)]), 0)
+        table.depart(1, new ArrayList<Bridge>([new Bridge(1, 0, 1, b, c, 3)]), 1)
+        TransactionTable copy = new TransactionTable(table)
+        copy.remove(0)
+
+        then:
+        table.getWaitingRows() as List == [2]
+        table.getArrivingRows(tick) as List == [1]
+        table.getArrivingRows(tick + 2) as List == [0]
+        copy.getWaitingRows() as List == [0]
+        copy.getArrivingRows(tick) as List == [1]
+        copy.getArrivingRows(tick + 2) as List == []
+    }
+
+    def "test state history rebuilds fields from deltas"() {
+
+        setup:
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("historyKeyframeInterval", 3)
+        AionState state = createHistoryState(configuration)
+        String[] codes = ["ETH", "BTC", "NEO", "ADA"]
+        ArrayList<String> rounds = new ArrayList<>()
+
+        when:
+        for (int round = 1; round <= 10; round++) {
+            state = state.createNextState(round)
+            AionField field = state.getField()
+            field.spawnTransactions(1)
+            field.addBridge(round % 2, round, codes[round % 4], codes[(round + 1) % 4])
+            rounds.add(field.bridgesToString() + " " + field.transactionsToString())
+        }
+
+        then:
+        (1..10).every { round ->
+            getHistoryState(state, round).getField().bridgesToString() + " " +
+                    getHistoryState(state, round).getField().transactionsToString() == rounds.get(round - 1)
+        }
+    }
+
+    def "test state history rebuilds fields with moving transactions"() {
+
+        setup:
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("historyKeyframeInterval", 4)
+        configuration.put("stakeAmount", 10)
+        configuration.put("transactionSpeed", 3)
+        AionState state = createHistoryState(configuration)
+        ArrayList<String> rounds = new ArrayList<>()
+        int completed = 0
+        int removedFromBridges = 0
+
+        when:
+        for (int round = 1; round <= 30; round++) {
+            state = state.createNextState(round)
+            int[] removed = playMovingRound(state, round)
+            removedFromBridges += removed[0]
+            completed += removed[1]
+
+            AionField field = state.getField()
+            rounds.add(field.bridgesToString() + " " + field.transactionsToString())
+        }
+
+        then:
+        completed > 0
+        removedFromBridges > 0
+        getHistoryState(state, 5).@field == null
+        getHistoryState(state, 8).@field != null
+        (1..30).every { round ->
+            AionField field = getHistoryState(state, round).getField()
+            field.bridgesToString() + " " + field.transactionsToString() == rounds.get(round - 1)
+        }
+    }
+
+    def "test transaction strings follow moving transactions"() {
+
+        setup:
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("stakeAmount", 10)
+        configuration.put("transactionSpeed", 3)
+        AionState state = createHistoryState(configuration)
+        List<String> rounds = []
+        int mismatches = 0
+
+        when:
+        for (int round = 1; round <= 30; round++) {
+            state = state.createNextState(round)
+            playMovingRound(state, round)
+
+            AionField field = state.getField()
+            String expected = field.getTransactions().isEmpty()
+                    ? "null"
+                    : field.getTransactions().collect { it.toString() }.join(";")
+            String encoded = field.transactionsToString()
+            String kept = field.transactionsToString()
+            if (encoded != expected || kept != expected) mismatches++
+
+            rounds.add(encoded)
+        }
+
+        then:
+        mismatches == 0
+        (1..30).every { round ->
+            getHistoryState(state, round).getField().transactionsToString() == rounds.get(round - 1)
+        }
+    }
+
+    /**
+     * Plays a round in which a bridge is built, every fifth round one is
+     * removed, and transactions complete and move
+     * @return Transactions removed with a bridge and completed transactions
+     */
+    private static int[] playMovingRound(AionState state, int round) {
+        String[] codes = ["ETH", "BTC", "XRP", "ADA", "NEO", "BCH", "EOS", "LTC"]
+        AionField field = state.getField()
+        TransactionTable transactions = field.getTransactionTable()
+        int[] removed = new int[2]
+
+        field.spawnTransactions(4)
+        field.processMove(new AionMove(codes[round % 8], codes[(round + 3) % 8], 1 + round % 3),
+                state.getPlayerStateById(round % 2))
+
+        if (round % 5 == 0) {
+            int builtRound = round - 4
+            int count = transactions.size()
+            field.processMove(new AionMove(codes[builtRound % 8], codes[(builtRound + 3) % 8]),
+                    state.getPlayerStateById(builtRound % 2))
+            removed[0] = count - transactions.size()
+        }
+
+        int count = transactions.size()
+        field.removeCompleteTransactions()
+        removed[1] = count - transactions.size()
+        field.moveTransactions(state)
+
+        return removed
+    }
+
+    /**
+     * Initial state of a new game with its own player states
+     */
+    private static AionState createHistoryState(Configuration configuration) {
+        AionSettings settings = new AionSettings(configuration)
+        AionContext context = new AionContext(settings, AionEngine.readFieldData("/data.json"), new Random(1))
+        ArrayList<AionPlayerState> playerStates = new ArrayList<>([
+                new AionPlayerState(0, settings.getInitialCoins()),
+                new AionPlayerState(1, settings.getInitialCoins())
+        ])
+
+        return new AionState(playerStates, new AionField(context))
+    }
+
+    private static AionState getHistoryState(AionState state, int round) {
+        while (state.getRoundNumber() > round) state = (AionState) state.getPreviousState()
+        return state
+    }
 }
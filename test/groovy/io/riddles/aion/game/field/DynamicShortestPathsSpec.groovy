@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.field
+
+import spock.lang.Specification
+
+import java.awt.Point
+
+/**
+ * io.riddles.aion.game.field.DynamicShortestPathsSpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class DynamicShortestPathsSpec extends Specification {
+
+    def "test dynamic shortest paths equal to shortest path handler"() {
+
+        setup:
+        Random random = new Random(seed)
+        ArrayList<Network> networks = new ArrayList<>()
+        for (int i = 0; i < 40; i++) {
+            networks.add(new Network(i, "N" + i, "N" + i, new Point(random.nextInt(32), random.nextInt(24))))
+        }
+        ArrayList<Bridge> bridges = new ArrayList<>()
+        NetworkGraph graph = new NetworkGraph(networks.size())
+        DynamicShortestPaths shortestPaths = new DynamicShortestPaths(networks, graph)
+        RoutingTable routingTable = shortestPaths.getRoutingTable()
+        int mismatches = 0
+        int graphMismatches = 0
+
+        when:
+        for (int step = 0; step < 150; step++) {
+            if (bridges.isEmpty() || random.nextInt(3) > 0) {
+                Network side1 = networks.get(random.nextInt(networks.size()))
+                Network side2 = networks.get(random.nextInt(networks.size()))
+                if (side1 == side2) continue
+
+                bridges.add(new Bridge(step, random.nextInt(2), 1 + random.nextInt(3), side1, side2, 8))
+                update(shortestPaths, graph, bridges, side1, side2)
+            } else {
+                Bridge bridge = bridges.remove(random.nextInt(bridges.size()))
+                update(shortestPaths, graph, bridges, bridge.getSides().get(0), bridge.getSides().get(1))
+            }
+
+            NetworkGraph rebuilt = new NetworkGraph(networks.size(), bridges)
+            if (!isSameGraph(graph, rebuilt)) {
+                graphMismatches++
+            }
+
+            ShortestPathHandler handler = new ShortestPathHandler(networks, rebuilt)
+            for (Network start : networks) {
+                for (Network goal : networks) {
+                    if (start == goal) continue
+
+                    ArrayList<Network> path = handler.getShortestPath(start, goal)
+                    if (!isEquivalent(routingTable, networks, bridges, start, goal, path)) {
+                        mismatches++
+                    }
+                }
+            }
+        }
+
+        then:
+        graphMismatches == 0
+        mismatches == 0
+
+        where:
+        seed << [1L, 2L, 3L, 4L, 5L]
+    }
+
+    def "test copies keep their routes when the original changes"() {
+
+        setup:
+        ArrayList<Network> networks = new ArrayList<>()
+        for (int i = 0; i < 3; i++) {
+            networks.add(new Network(i, "N" + i, "N" + i, new Point(i, 0)))
+        }
+        ArrayList<Bridge> bridges = new ArrayList<>()
+        NetworkGraph graph = new NetworkGraph(networks.size())
+        DynamicShortestPaths shortestPaths = new DynamicShortestPaths(networks, graph)
+        bridges.add(new Bridge(0, 0, 3, networks.get(0), networks.get(2), 8))
+        update(shortestPaths, graph, bridges, networks.get(0), networks.get(2))
+
+        when:
+        NetworkGraph copyGraph = new NetworkGraph(graph)
+        DynamicShortestPaths copy = new DynamicShortestPaths(shortestPaths, copyGraph)
+        ArrayList<Bridge> copyBridges = new ArrayList<>(bridges)
+        copyBridges.add(new Bridge(1, 0, 1, networks.get(0), networks.get(1), 8))
+        copyBridges.add(new Bridge(2, 1, 1, networks.get(1), networks.get(2), 8))
+        update(copy, copyGraph, copyBridges, networks.get(0), networks.get(1))
+        update(copy, copyGraph, copyBridges, networks.get(1), networks.get(2))
+
+        then:
+        copy.getRoutingTable().getNextHop(0, 2) == 1
+        copy.getRoutingTable().getCost(0, 2) == 2
+        shortestPaths.getRoutingTable().getNextHop(0, 2) == 2
+        shortestPaths.getRoutingTable().getCost(0, 2) == 3
+        shortestPaths.getRoutingTable().getNextHop(0, 1) == RoutingTable.NO_ROUTE
+        graph.getCheapestFee(0, 1) == NetworkGraph.NO_EDGE
+    }
+
+    private static void update(DynamicShortestPaths shortestPaths, NetworkGraph graph,
+                               ArrayList<Bridge> bridges, Network side1, Network side2) {
+        List<Bridge> pairBridges = bridges.findAll { it.getSides().contains(side1) && it.getSides().contains(side2) }
+        int oldFee = graph.getCheapestFee(side1.getIndex(), side2.getIndex())
+
+        if (graph.updatePair(side1.getIndex(), side2.getIndex(), pairBridges)) {
+            shortestPaths.update(side1.getIndex(), side2.getIndex(), oldFee)
+        }
+    }
+
+    private static boolean isSameGraph(NetworkGraph graph, NetworkGraph expected) {
+        for (int network = 0; network <= expected.size(); network++) {
+            if (graph.firstEdge(network) != expected.firstEdge(network)) return false
+        }
+        for (int edge = 0; edge < expected.firstEdge(expected.size()); edge++) {
+            if (graph.getTarget(edge) != expected.getTarget(edge)) return false
+            if (graph.getFee(edge) != expected.getFee(edge)) return false
+        }
+        return true
+    }
+
+    private static boolean isEquivalent(RoutingTable routingTable, ArrayList<Network> networks,
+                                        ArrayList<Bridge> bridges, Network start, Network goal,
+                                        ArrayList<Network> path) {
+        int cost = routingTable.getCost(start.getIndex(), goal.getIndex())
+
+        if (path == null) {
+            return cost == RoutingTable.UNREACHABLE &&
+                    routingTable.getNextHop(start.getIndex(), goal.getIndex()) == RoutingTable.NO_ROUTE
+        }
+
+        if (pathCost(bridges, start, path) != cost) return false
+
+        // Ties have to be broken the same way as the handler does
+        if (routingTable.getNextHop(start.getIndex(), goal.getIndex()) != path.get(0).getIndex()) return false
+
+        // Following the next hops has to give a route with the same cost
+        ArrayList<Network> route = new ArrayList<>()
+        int current = start.getIndex()
+        while (current != goal.getIndex() && route.size() < networks.size()) {
+            current = routingTable.getNextHop(current, goal.getIndex())
+            route.add(networks.get(current))
+        }
+
+        return current == goal.getIndex() && pathCost(bridges, start, route) == cost
+    }
+
+    private static int pathCost(ArrayList<Bridge> bridges, Network start, ArrayList<Network> path) {
+        int cost = 0
+        Network current = start
+        for (Network next : path) {
+            cost += bridges.findAll { it.getSides().contains(current) && it.getSides().contains(next) }
+                    .collect { it.getFee() }
+                    .min()
+            current = next
+        }
+        return cost
+    }
+}
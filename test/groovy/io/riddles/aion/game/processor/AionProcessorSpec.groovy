@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.processor
+
+import io.riddles.aion.engine.AionContext
+import io.riddles.aion.engine.AionEngine
+import io.riddles.aion.engine.AionSettings
+import io.riddles.aion.game.AionSerializer
+import io.riddles.aion.game.ResultWriter
+import io.riddles.aion.game.player.AionPlayer
+import io.riddles.aion.game.state.AionState
+import io.riddles.aion.game.state.AionStateSerializer
+import io.riddles.javainterface.configuration.Configuration
+import io.riddles.javainterface.game.player.PlayerProvider
+import org.json.JSONArray
+import org.json.JSONObject
+import spock.lang.Specification
+
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.LinkedBlockingQueue
+
+/**
+ * io.riddles.aion.game.processor.AionProcessorSpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class AionProcessorSpec extends Specification {
+
+    def "test late move is not used in the next rounds"() {
+
+        setup:
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("parallelMoves", 1)
+        configuration.put("moveDeadline", 300)
+        AionContext context = new AionContext(
+                new AionSettings(configuration), AionEngine.readFieldData("/data.json"), new Random(1))
+
+        // Answers the request of round 1 too late, and the one of round 3 wrongly
+        BotPlayer slowPlayer = new BotPlayer(0, 1, 450, 3)
+        BotPlayer player = new BotPlayer(1, 0, 0, 0)
+        PlayerProvider<AionPlayer> playerProvider = new PlayerProvider<>()
+        playerProvider.add(slowPlayer)
+        playerProvider.add(player)
+
+        AionProcessor processor = new AionProcessor(playerProvider, context)
+        AionState state = new AionRules(context).createInitialState([0, 1])
+
+        when:
+        for (int round = 1; round <= 5; round++) {
+            state = processor.createNextState(state, round)
+        }
+
+        then:
+        slowPlayer.warnings == ["1: Move took too long", "3: Cannot parse move type"]
+        slowPlayer.requestedRounds == [1, 2, 3, 4, 5]
+        player.warnings.isEmpty()
+    }
+
+    def "test states are written when their round ends"() {
+
+        setup:
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("transactionRate", 3)
+        configuration.put("historyKeyframeInterval", 4)
+        AionStateSerializer stateSerializer = new AionStateSerializer()
+
+        AionContext playedContext = createContext(configuration)
+        AionProcessor playedProcessor = createProcessor(playedContext)
+        AionState playedState = new AionRules(playedContext).createInitialState([0, 1])
+        List<JSONObject> expected = [stateSerializer.visitObject(playedState)]
+        for (int round = 1; round <= 8; round++) {
+            playedState = playedProcessor.createNextState(playedState, round)
+            expected.add(stateSerializer.visitObject(playedState))
+        }
+
+        AionContext context = createContext(configuration)
+        AionProcessor processor = createProcessor(context)
+        StringWriter output = new StringWriter()
+        processor.setResultWriter(new ResultWriter(output))
+        AionState initialState = new AionRules(context).createInitialState([0, 1])
+        processor.getResultWriter().writeState(initialState)
+        AionState state = initialState
+        List<Boolean> unlinked = new ArrayList<>()
+
+        when:
+        for (int round = 1; round <= 8; round++) {
+            state = processor.createNextState(state, round)
+            unlinked.add(state.getPreviousState() == null)
+        }
+        JSONObject trailer = new JSONObject(new AionSerializer().traverseToString(processor, initialState, stateSerializer))
+        JSONObject result = new JSONObject(output.toString())
+        JSONArray states = result.getJSONArray("states")
+
+        then:
+        unlinked.every()
+        initialState.getNextState() == null
+        !trailer.has("states")
+        trailer.getJSONObject("settings").similar(result.getJSONObject("settings"))
+        states.length() == expected.size()
+        (0..<states.length()).every { states.getJSONObject(it).similar(expected.get(it)) }
+    }
+
+    private static AionContext createContext(Configuration configuration) {
+        return new AionContext(
+                new AionSettings(configuration), AionEngine.readFieldData("/data.json"), new Random(1))
+    }
+
+    private static AionProcessor createProcessor(AionContext context) {
+        PlayerProvider<AionPlayer> playerProvider = new PlayerProvider<>()
+        playerProvider.add(new BotPlayer(0, 0, 0, 0))
+        playerProvider.add(new BotPlayer(1, 0, 0, 0))
+
+        return new AionProcessor(playerProvider, context)
+    }
+
+    /**
+     * Bot behind a pipe, answers every request in order after thinking
+     * for a while in the slow round.
+     */
+    private static class BotPlayer extends AionPlayer {
+
+        BlockingQueue<Integer> requests = new LinkedBlockingQueue<>()
+        BlockingQueue<String> replies = new LinkedBlockingQueue<>()
+        List<Integer> requestedRounds = Collections.synchronizedList(new ArrayList<>())
+        List<String> warnings = new ArrayList<>()
+        volatile int round
+
+        BotPlayer(int id, int slowRound, long slowMillis, int invalidRound) {
+            super(id)
+
+            Thread bot = new Thread({
+                while (true) {
+                    int requestRound = this.requests.take()
+                    this.requestedRounds.add(requestRound)
+
+                    if (requestRound == slowRound) Thread.sleep(slowMillis)
+
+                    this.replies.put(requestRound == invalidRound ? "nonsense" : "pass")
+                }
+            } as Runnable)
+            bot.setDaemon(true)
+            bot.start()
+        }
+
+        @Override
+        void sendUpdate(String type, int value) {
+            if (type == "round") this.round = value
+        }
+
+        @Override
+        String requestMove(Enum actionType) {
+            this.requests.put(this.round)
+            return this.replies.take()
+        }
+
+        @Override
+        void sendWarning(String warning) {
+            this.warnings.add(this.round + ": " + warning)
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.processor
+
+import io.riddles.aion.SeededGame
+import io.riddles.aion.game.state.AionState
+import io.riddles.javainterface.configuration.Configuration
+import spock.lang.Specification
+
+/**
+ * io.riddles.aion.game.processor.DeltaUpdatesSpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class DeltaUpdatesSpec extends Specification {
+
+    def "test field rebuilt from delta updates"() {
+
+        setup:
+        Configuration configuration = SeededGame.createConfiguration()
+        SeededGame game = new SeededGame(configuration, seed)
+        DeltaUpdates deltaUpdates = new DeltaUpdates(7)
+        BotField botField = new BotField()
+        List<String> mismatches = new ArrayList<>()
+        int fullUpdates = 0
+
+        when:
+        while (!game.hasEnded()) {
+            game.playRound({ AionState state ->
+                LinkedHashMap<String, String> updates = deltaUpdates.createUpdates(state.getField())
+                if (updates.containsKey("transactions_sync")) fullUpdates++
+
+                botField.apply(updates)
+
+                if (botField.bridgesToString() != state.getField().bridgesToString()) {
+                    mismatches.add(state.getRoundNumber() + " bridges")
+                }
+                if (botField.transactionsToString() != state.getField().transactionsToString()) {
+                    mismatches.add(state.getRoundNumber() + " transactions")
+                }
+            })
+        }
+
+        then:
+        game.getStates().size() > 50
+        fullUpdates == (int) Math.ceil((game.getStates().size() - 1) / 7.0)
+        mismatches.isEmpty()
+
+        where:
+        seed << [1L, 2L, 3L]
+    }
+
+    /**
+     * The field as a bot keeps it from the updates
+     */
+    private static class BotField {
+
+        List<String> bridges = new ArrayList<>()
+        TreeMap<Integer, String> transactions = new TreeMap<>()  // "from>to:location" by id
+
+        void apply(LinkedHashMap<String, String> updates) {
+            updates.each { String key, String value ->
+                List<String> entries = value == "null" ? [] : value.split(";").toList()
+
+                switch (key) {
+                    case "bridges":
+                        this.bridges = new ArrayList<>(entries)
+                        break
+                    case "bridges_built":
+                        this.bridges.addAll(entries)
+                        break
+                    case "bridges_removed":
+                        entries.each { this.bridges.remove(it) }
+                        break
+                    case "transactions_sync":
+                        this.transactions.clear()
+                        entries.each { put(it) }
+                        break
+                    case "transactions_spawned":
+                        entries.each { put(it) }
+                        break
+                    case "transactions_departed":
+                    case "transactions_arrived":
+                        entries.each {
+                            int id = it.substring(0, it.indexOf(':')).toInteger()
+                            String route = this.transactions.get(id).split(":")[0]
+                            this.transactions.put(id, route + ":" + it.substring(it.indexOf(':') + 1))
+                        }
+                        break
+                    case "transactions_completed":
+                        entries.each { this.transactions.remove(it.toInteger()) }
+                        break
+                    default:
+                        throw new IllegalArgumentException(key)
+                }
+            }
+        }
+
+        private void put(String entry) {
+            int split = entry.indexOf(':')
+            this.transactions.put(entry.substring(0, split).toInteger(), entry.substring(split + 1))
+        }
+
+        String bridgesToString() {
+            return this.bridges.isEmpty() ? "null" : this.bridges.join(";")
+        }
+
+        String transactionsToString() {
+            return this.transactions.isEmpty() ? "null" : this.transactions.values().join(";")
+        }
+    }
+}
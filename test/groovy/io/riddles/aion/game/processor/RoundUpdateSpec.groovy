@@ -0,0 +1,162 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.processor
+
+import io.riddles.aion.engine.AionContext
+import io.riddles.aion.engine.AionEngine
+import io.riddles.aion.engine.AionSettings
+import io.riddles.aion.game.move.AionMoveDeserializer
+import io.riddles.aion.game.player.AionPlayer
+import io.riddles.aion.game.state.AionPlayerState
+import io.riddles.aion.game.state.AionState
+import io.riddles.javainterface.configuration.Configuration
+import io.riddles.javainterface.game.player.AbstractPlayer
+import io.riddles.javainterface.game.player.PlayerProvider
+import org.json.JSONObject
+import spock.lang.Specification
+
+/**
+ * io.riddles.aion.game.processor.RoundUpdateSpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class RoundUpdateSpec extends Specification {
+
+    def "test players get the same updates as before"() {
+
+        setup:
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("parallelMoves", parallelMoves)
+        configuration.put("transactionRate", 3)
+        configuration.put("maxRounds", 60)
+        JSONObject fieldData = AionEngine.readFieldData("/data.json")
+        AionContext context = new AionContext(new AionSettings(configuration), fieldData, new Random(1))
+
+        PlayerProvider<AionPlayer> playerProvider = new PlayerProvider<>()
+        RecordingPlayer[] players = [new RecordingPlayer(0), new RecordingPlayer(1), new RecordingPlayer(2)]
+        players.each { playerProvider.add(it) }
+        AionProcessor processor = new AionProcessor(playerProvider, context)
+        AionState state = new AionRules(context).createInitialState([0, 1, 2])
+
+        when:
+        int rounds = 0
+        while (!processor.hasGameEnded(state)) {
+            rounds++
+            state = processor.createNextState(state, rounds)
+        }
+
+        // The same game again with the rules only, sending updates like before
+        AionContext baselineContext = new AionContext(new AionSettings(configuration), fieldData, new Random(1))
+        AionRules rules = new AionRules(baselineContext)
+        AionMoveDeserializer moveDeserializer = new AionMoveDeserializer(baselineContext.getSettings())
+        AionState baselineState = rules.createInitialState([0, 1, 2])
+        int mismatches = 0
+
+        for (int round = 1; round <= rounds; round++) {
+            baselineState = rules.startRound(baselineState, round)
+            List<String> expected = sendUpdates(baselineState)
+
+            for (RecordingPlayer player : players) {
+                if (player.updates.get(round - 1) != expected) mismatches++
+            }
+
+            for (AionPlayerState playerState : baselineState.getPlayerStates()) {
+                String reply = players[playerState.getPlayerId()].replies.get(round - 1)
+                baselineState.getField().processMove(moveDeserializer.traverse(reply), playerState)
+            }
+            rules.finishRound(baselineState)
+        }
+
+        then:
+        rounds > 10
+        players.every { it.updates.size() == rounds }
+        baselineState.getField().bridgesToString() == state.getField().bridgesToString()
+        baselineState.getField().bridgesToString() != "null"
+        mismatches == 0
+
+        where:
+        parallelMoves << [0, 1]
+    }
+
+    /**
+     * What sendUpdates in the processor sent every player before
+     */
+    private static List<String> sendUpdates(AionState state) {
+        List<String> updates = new ArrayList<>()
+
+        updates.add("round " + state.getRoundNumber())
+        updates.add("bridges " + state.getField().bridgesToString())
+        updates.add("transactions " + state.getField().transactionsToString())
+
+        for (AionPlayerState playerState : state.getPlayerStates()) {
+            updates.add("coins " + playerState.getPlayerId() + " " + playerState.getAvailableCoins())
+            updates.add("value " + playerState.getPlayerId() + " " + playerState.getTotalCoins())
+        }
+
+        return updates
+    }
+
+    /**
+     * Records the updates per round and builds random bridges
+     */
+    private static class RecordingPlayer extends AionPlayer {
+
+        static final String[] CODES = ["ETH", "BTC", "XRP", "ADA", "NEO", "BCH", "EOS", "LTC"]
+
+        List<List<String>> updates = new ArrayList<>()
+        List<String> replies = new ArrayList<>()
+        Random random
+
+        RecordingPlayer(int id) {
+            super(id)
+            this.random = new Random(id)
+        }
+
+        @Override
+        void sendUpdate(String type, int value) {
+            if (type == "round") this.updates.add(new ArrayList<>())
+            this.updates.get(this.updates.size() - 1).add(type + " " + value)
+        }
+
+        @Override
+        void sendUpdate(String type, String value) {
+            this.updates.get(this.updates.size() - 1).add(type + " " + value)
+        }
+
+        @Override
+        void sendUpdate(String type, AbstractPlayer player, int value) {
+            this.updates.get(this.updates.size() - 1).add(type + " " + player.getId() + " " + value)
+        }
+
+        @Override
+        String requestMove(Enum actionType) {
+            int side1 = this.random.nextInt(CODES.length)
+            int side2 = this.random.nextInt(CODES.length)
+            String reply = side1 == side2
+                    ? "pass"
+                    : String.format("build %s-%s %d", CODES[side1], CODES[side2], 1 + this.random.nextInt(3))
+
+            this.replies.add(reply)
+            return reply
+        }
+    }
+}
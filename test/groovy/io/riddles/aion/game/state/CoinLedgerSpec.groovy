@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.game.state
+
+import io.riddles.aion.SeededGame
+import io.riddles.aion.engine.AionContext
+import io.riddles.aion.engine.AionEngine
+import io.riddles.aion.engine.AionSettings
+import io.riddles.aion.game.processor.AionRules
+import io.riddles.javainterface.configuration.Configuration
+import spock.lang.Specification
+
+/**
+ * io.riddles.aion.game.state.CoinLedgerSpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class CoinLedgerSpec extends Specification {
+
+    def "test ledger standings"() {
+
+        setup:
+        Configuration configuration = AionEngine.createDefaultConfiguration()
+        configuration.put("initialCoins", 500)
+        configuration.put("winAmount", 600)
+        AionContext context = new AionContext(
+                new AionSettings(configuration), AionEngine.readFieldData("/data.json"), new Random(1))
+        AionRules rules = new AionRules(context)
+        AionState state = rules.createInitialState([0, 1, 2])
+        int mismatches = 0
+
+        when:
+        for (List<Integer> fee : fees) {
+            state.getPlayerStateById(fee[0]).receiveFee(fee[1])
+
+            if (rules.getWinnerId(state) != getBaselineWinnerId(state, 600)) mismatches++
+        }
+
+        then:
+        mismatches == 0
+        state.getLedger().getLeaderId() == leaderId
+        state.getLedger().getWinnerCount() == winnerCount
+        rules.getWinnerId(state) == winnerId
+
+        where:
+        fees                                  | leaderId             | winnerCount | winnerId
+        []                                    | CoinLedger.NO_PLAYER | 0           | null  // tie at the start
+        [[0, 10]]                             | 0                    | 0           | 0
+        [[0, 10], [1, 10]]                    | CoinLedger.NO_PLAYER | 0           | null  // caught up
+        [[0, 10], [1, 10], [2, 25]]           | 2                    | 0           | 2     // overtakes a tied lead
+        [[0, 10], [1, 10], [1, 5]]            | 1                    | 0           | 1
+        [[0, 10], [0, 0], [1, 10], [0, -5]]   | CoinLedger.NO_PLAYER | 0           | null  // no coins lost
+        [[0, 90], [1, 120]]                   | 1                    | 1           | 1     // leader below the win amount is not used
+        [[0, 100], [1, 150]]                  | 1                    | 2           | null  // two players cross in one round
+        [[0, 100], [1, 100], [2, 100]]        | CoinLedger.NO_PLAYER | 3           | null
+        [[0, 100], [0, 50]]                   | 0                    | 1           | 0     // crossing twice counts once
+    }
+
+    def "test ledger winner equal to baseline over seeded games"() {
+
+        setup:
+        Configuration configuration = SeededGame.createConfiguration()
+        configuration.put("winAmount", 700)
+        SeededGame game = new SeededGame(configuration, seed)
+        int mismatches = 0
+
+        when:
+        while (!game.hasEnded()) {
+            AionState state = game.playRound()
+
+            if (game.getRules().getWinnerId(state) != getBaselineWinnerId(state, 700)) mismatches++
+        }
+
+        then:
+        mismatches == 0
+
+        where:
+        seed << [1L, 2L, 3L, 4L]
+    }
+
+    /**
+     * How the winner was found before the ledger, from the player states
+     */
+    private static Integer getBaselineWinnerId(AionState state, int winAmount) {
+        List<AionPlayerState> winners = state.getPlayerStates().findAll { it.getTotalCoins() >= winAmount }
+
+        if (winners.size() > 1) {
+            return null
+        } else if (winners.size() == 1) {
+            return winners.get(0).getPlayerId()
+        }
+
+        int maxCoins = -1
+        for (AionPlayerState playerState : state.getPlayerStates()) {
+            if (playerState.getTotalCoins() > maxCoins) {
+                maxCoins = playerState.getTotalCoins()
+                winners.clear()
+                winners.add(playerState)
+            } else if (playerState.getTotalCoins() == maxCoins) {
+                winners.add(playerState)
+            }
+        }
+
+        return winners.size() == 1 ? winners.get(0).getPlayerId() : null
+    }
+}
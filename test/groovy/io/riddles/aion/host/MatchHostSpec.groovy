@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.host
+
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * io.riddles.aion.host.MatchHostSpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class MatchHostSpec extends Specification {
+
+    def "test queued matches are all played"() {
+
+        setup:
+        MatchHost host = new MatchHost(2)
+        List<CompletableFuture<Integer>> results = new ArrayList<>()
+
+        when:
+        for (int i = 0; i < 20; i++) {
+            int match = i
+            results.add(host.submit({ match * 2 } as Callable<Integer>))
+        }
+
+        then:
+        results.collect { it.get(10, TimeUnit.SECONDS) } == (0..<20).collect { it * 2 }
+        host.getMatchCount() == 20
+    }
+
+    def "test running matches limit"() {
+
+        setup:
+        MatchHost host = new MatchHost(3)
+        AtomicInteger running = new AtomicInteger()
+        AtomicInteger maxRunning = new AtomicInteger()
+        CountDownLatch started = new CountDownLatch(3)
+        CountDownLatch release = new CountDownLatch(1)
+        List<CompletableFuture<Integer>> results = new ArrayList<>()
+        Callable<Integer> match = {
+            int count = running.incrementAndGet()
+            maxRunning.accumulateAndGet(count, { a, b -> Math.max(a, b) })
+            started.countDown()
+            release.await()
+            running.decrementAndGet()
+            return count
+        } as Callable<Integer>
+
+        when:
+        for (int i = 0; i < 10; i++) {
+            results.add(host.submit(match))
+        }
+        started.await(10, TimeUnit.SECONDS)
+        Thread.sleep(100)
+        int runningBeforeRelease = running.get()
+        int doneBeforeRelease = results.count { it.isDone() }
+        release.countDown()
+        results.each { it.get(10, TimeUnit.SECONDS) }
+
+        then:
+        runningBeforeRelease == 3
+        doneBeforeRelease == 0
+        maxRunning.get() == 3
+    }
+
+    def "test shutdown plays queued matches"() {
+
+        setup:
+        MatchHost host = new MatchHost(1)
+        CountDownLatch release = new CountDownLatch(1)
+        List<CompletableFuture<Integer>> results = new ArrayList<>()
+
+        when:
+        for (int i = 0; i < 5; i++) {
+            int match = i
+            results.add(host.submit({
+                release.await()
+                return match
+            } as Callable<Integer>))
+        }
+        host.shutdown()
+        release.countDown()
+
+        then:
+        results.collect { it.get(10, TimeUnit.SECONDS) } == [0, 1, 2, 3, 4]
+
+        when:
+        host.submit({ 5 } as Callable<Integer>)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "test await termination waits for queued and running matches"() {
+
+        setup:
+        MatchHost host = new MatchHost(2)
+        CountDownLatch release = new CountDownLatch(1)
+        AtomicInteger played = new AtomicInteger()
+
+        when:
+        for (int i = 0; i < 6; i++) {
+            host.submit({
+                release.await()
+                Thread.sleep(20)
+                return played.incrementAndGet()
+            } as Callable<Integer>)
+        }
+        boolean terminatedBeforeShutdown = host.awaitTermination(50, TimeUnit.MILLISECONDS)
+        host.shutdown()
+        boolean terminatedBeforeRelease = host.awaitTermination(50, TimeUnit.MILLISECONDS)
+        release.countDown()
+        boolean terminated = host.awaitTermination(10, TimeUnit.SECONDS)
+
+        then:
+        !terminatedBeforeShutdown
+        !terminatedBeforeRelease
+        terminated
+        host.isTerminated()
+        played.get() == 6
+    }
+
+    def "test shut down host without matches is terminated"() {
+
+        setup:
+        MatchHost host = new MatchHost(1)
+
+        when:
+        host.shutdown()
+
+        then:
+        host.isTerminated()
+        host.awaitTermination(0, TimeUnit.MILLISECONDS)
+    }
+
+    def "test failing match completes exceptionally"() {
+
+        setup:
+        MatchHost host = new MatchHost(1)
+        CompletableFuture<Integer> failing = host.submit({
+            throw new RuntimeException("Failed to load the match")
+        } as Callable<Integer>)
+        CompletableFuture<Integer> next = host.submit({ 1 } as Callable<Integer>)
+
+        when:
+        failing.get(10, TimeUnit.SECONDS)
+
+        then:
+        ExecutionException ex = thrown(ExecutionException)
+        ex.getCause().getMessage() == "Failed to load the match"
+        next.get(10, TimeUnit.SECONDS) == 1
+    }
+}
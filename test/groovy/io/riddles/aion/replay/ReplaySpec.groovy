@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.replay
+
+import io.riddles.aion.SeededGame
+import io.riddles.aion.game.state.AionState
+import io.riddles.aion.game.state.AionStateSerializer
+import org.json.JSONArray
+import org.json.JSONObject
+import spock.lang.Specification
+
+/**
+ * io.riddles.aion.replay.ReplaySpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class ReplaySpec extends Specification {
+
+    def "test replay states similar to serialized states"() {
+
+        setup:
+        SeededGame game = new SeededGame(SeededGame.createConfiguration(), seed)
+        while (!game.hasEnded()) game.playRound()
+        AionStateSerializer serializer = new AionStateSerializer()
+        JSONObject gameObject = createGame(game)
+
+        ByteArrayOutputStream fromStates = new ByteArrayOutputStream()
+        ReplayWriter stateWriter = new ReplayWriter(fromStates, gameObject, 10)
+        for (AionState state : game.getStates()) {
+            stateWriter.writeState(state)
+        }
+        stateWriter.finish()
+
+        ByteArrayOutputStream fromJson = new ByteArrayOutputStream()
+        ReplayWriter jsonWriter = new ReplayWriter(fromJson, gameObject, 10)
+        for (AionState state : game.getStates()) {
+            jsonWriter.writeState(serializer.visitObject(state))
+        }
+        jsonWriter.finish()
+
+        when:
+        ReplayReader reader = new ReplayReader(new ByteArrayInputStream(fromStates.toByteArray()))
+        int mismatches = 0
+        for (AionState state : game.getStates()) {
+            JSONObject read = reader.readState()
+            if (!roundTravel(read).similar(roundTravel(serializer.visitObject(state)))) {
+                mismatches++
+            }
+        }
+
+        then:
+        fromStates.toByteArray() == fromJson.toByteArray()
+        game.getStates().size() > 50
+        mismatches == 0
+        reader.readState() == null
+        reader.getGame().getJSONArray("networks").length() == gameObject.getJSONArray("networks").length()
+
+        where:
+        seed << [1L, 2L, 3L]
+    }
+
+    static JSONObject createGame(SeededGame game) {
+        JSONObject gameObject = new JSONObject()
+        gameObject.put("settings", new JSONObject())
+        gameObject.put("networks", game.getContext().getFieldData().getJSONArray("networks"))
+        return gameObject
+    }
+
+    /**
+     * Replays keep travel in steps of 1 / TRAVEL_SCALE
+     */
+    private static JSONObject roundTravel(JSONObject state) {
+        JSONObject rounded = new JSONObject(state.toString())
+        JSONArray transactions = rounded.getJSONArray("transactions")
+
+        for (int i = 0; i < transactions.length(); i++) {
+            JSONObject transaction = transactions.getJSONObject(i)
+
+            if (transaction.has("travel")) {
+                transaction.put("travel", Math.round(transaction.getDouble("travel") * ReplayFormat.TRAVEL_SCALE))
+            }
+        }
+
+        return rounded
+    }
+}
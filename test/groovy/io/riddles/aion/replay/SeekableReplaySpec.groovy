@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.aion.replay
+
+import io.riddles.aion.SeededGame
+import io.riddles.aion.game.state.AionState
+import org.json.JSONObject
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * io.riddles.aion.replay.SeekableReplaySpec - Created on 18-10-26
+ *
+ * [description]
+ *
+ * @author Jim van Eeden - jim@riddles.io
+ */
+class SeekableReplaySpec extends Specification {
+
+    def "test read round equal to sequential read"() {
+
+        setup:
+        SeededGame game = new SeededGame(SeededGame.createConfiguration(), 1L)
+        while (!game.hasEnded()) game.playRound()
+        Path path = writeReplay(game, game.getStates(), 4)
+        Map<Integer, JSONObject> sequential = readSequential(path)
+        int lastRound = game.getStates().size() - 1
+
+        when:
+        SeekableReplay replay = new SeekableReplay(path)
+        int mismatches = 0
+        for (int round = 0; round <= lastRound; round++) {
+            if (!replay.readRound(round).similar(sequential.get(round))) {
+                mismatches++
+            }
+        }
+        JSONObject pastEnd = replay.readRound(lastRound + 1)
+        JSONObject beforeStart = replay.readRound(-1)
+        int chunkCount = replay.getChunkCount()
+        replay.close()
+        Files.delete(path)
+
+        then:
+        sequential.size() == lastRound + 1
+        chunkCount == (int) Math.ceil((lastRound + 1) / 4.0)
+        mismatches == 0
+        pastEnd == null
+        beforeStart == null
+    }
+
+    def "test read round missing from a chunk"() {
+
+        setup:
+        SeededGame game = new SeededGame(SeededGame.createConfiguration(), 2L)
+        for (int round = 1; round <= 20; round++) game.playRound()
+
+        // Chunks of rounds 0-3, 4-8 without 6, 10-13 and so on
+        List<AionState> states = game.getStates().findAll { it.getRoundNumber() != 6 && it.getRoundNumber() != 9 }
+        Path path = writeReplay(game, states, 4)
+        Map<Integer, JSONObject> sequential = readSequential(path)
+
+        when:
+        SeekableReplay replay = new SeekableReplay(path)
+        JSONObject missingInChunk = replay.readRound(6)
+        JSONObject missingAtChunkEnd = replay.readRound(9)
+        JSONObject beforeMissing = replay.readRound(8)
+        JSONObject afterMissing = replay.readRound(10)
+        replay.close()
+        Files.delete(path)
+
+        then:
+        missingInChunk == null
+        missingAtChunkEnd == null
+        beforeMissing.similar(sequential.get(8))
+        afterMissing.similar(sequential.get(10))
+    }
+
+    private static Path writeReplay(SeededGame game, List<AionState> states, int chunkRounds) {
+        Path path = Files.createTempFile("aion", ".replay")
+        OutputStream output = Files.newOutputStream(path)
+
+        ReplayWriter writer = new ReplayWriter(output, ReplaySpec.createGame(game), chunkRounds)
+        for (AionState state : states) {
+            writer.writeState(state)
+        }
+        writer.finish()
+        output.close()
+
+        return path
+    }
+
+    private static Map<Integer, JSONObject> readSequential(Path path) {
+        Map<Integer, JSONObject> states = new HashMap<>()
+        InputStream input = Files.newInputStream(path)
+        ReplayReader reader = new ReplayReader(input)
+
+        for (JSONObject state = reader.readState(); state != null; state = reader.readState()) {
+            states.put(state.getInt("round"), state)
+        }
+        input.close()
+
+        return states
+    }
+}